@@ -0,0 +1,59 @@
+package cpu;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import memory.Memory;
+
+// Cache des blocs décodés, indexé par PC de début.
+// Une écriture dans une page de code supprime tous les blocs de cette page.
+final class BlockCache implements Memory.CodeWriteListener {
+
+    private final Memory memory;
+    private final DecodedBlock[] blocks = new DecodedBlock[65536];
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final List<DecodedBlock>[] pageBlocks = new List[256];
+
+    BlockCache(Memory memory) {
+        this.memory = memory;
+        for (int p = 0; p < 256; p++) {
+            pageBlocks[p] = new ArrayList<>();
+        }
+        memory.setCodeWriteListener(this);
+    }
+
+    DecodedBlock get(int pc) {
+        return blocks[pc];
+    }
+
+    void put(DecodedBlock block) {
+        blocks[block.start] = block;
+        for (int p = block.firstPage(); p <= block.lastPage(); p++) {
+            pageBlocks[p].add(block);
+            memory.watchPage(p);
+        }
+    }
+
+    @Override
+    public void onCodeWrite(int page) {
+        List<DecodedBlock> list = pageBlocks[page];
+        for (DecodedBlock b : list) {
+            b.valid = false;
+            if (blocks[b.start] == b) {
+                blocks[b.start] = null;
+            }
+            // un bloc peut chevaucher deux pages
+            for (int p = b.firstPage(); p <= b.lastPage(); p++) {
+                if (p != page) pageBlocks[p].remove(b);
+            }
+        }
+        list.clear();
+    }
+
+    void clear() {
+        for (int p = 0; p < 256; p++) {
+            onCodeWrite(p);
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package cpu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+// Recompilateur dynamique : traduit un DecodedBlock chaud en source Java
+// (registres dans des variables locales), le compile en mémoire puis le
+// charge comme classe cachée. Les blocs identiques partagent la même classe.
+final class BlockCompiler {
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+    // Compilation en tâche de fond pour ne pas bloquer l'émulation
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "6809-recompiler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Classes déjà chargées, par source de bloc. Vidée quand elle est pleine :
+    // les blocs gardent leur classe, seul le partage est perdu
+    private static final int MAX_CLASSES = 4096;
+    private static final Map<String, CompiledBlock> CLASSES = new ConcurrentHashMap<>();
+
+    // Gestionnaire de fichiers de javac, réutilisé : thread du WORKER seulement
+    private static StandardJavaFileManager fileManager;
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private BlockCompiler() {
+    }
+
+    static boolean isAvailable() {
+        return COMPILER != null;
+    }
+
+    // Demande la compilation du bloc ; le résultat est posé dans block.compiled
+    static void submit(DecodedBlock block, int[] modes, int[] cycles, CycleModel timing) {
+        String body = translate(block, modes, cycles, timing, true);
+        if (body == null || COMPILER == null) {
+            block.compileFailed = true;
+            return;
+        }
+
+        // fin de bloc et cycles en tête de clé : deux blocs de même clé sont identiques
+        String key = block.end + " " + blockCycles(block, modes, cycles, timing) + "\n" + body;
+        CompiledBlock known = CLASSES.get(key);
+        if (known != null) {
+            block.compiled = known;
+            return;
+        }
+
+        WORKER.execute(() -> {
+            if (CLASSES.size() >= MAX_CLASSES) CLASSES.clear();
+            try {
+                block.compiled = CLASSES.computeIfAbsent(key, BlockCompiler::compile);
+            } catch (IllegalStateException e) {
+                // le bloc reste interprété
+                block.compileError = e.getMessage();
+                block.compileFailed = true;
+            }
+        });
+    }
+
+    // TRADUCTION
+
+    static int blockCycles(DecodedBlock block, int[] modes, int[] cycles, CycleModel timing) {
+        int total = 0;
+        for (int i = 0; i < block.count; i++) {
+            int opcode = block.opcodes[i];
+            total += timing.instructionCycles(opcode, modes[opcode], block.operands[i], cycles);
+        }
+        return total;
+    }
+
+    // Corps Java du bloc, ou null si une instruction n'est pas traduisible.
+    // checkWrites : sortie anticipée si une écriture invalide le bloc ou
+    // avance le point de contrôle du CPU (périphérique, interruption)
+    static String translate(DecodedBlock block, int[] modes, int[] cycles, CycleModel timing, boolean checkWrites) {
+        StringBuilder sb = new StringBuilder();
+        int done = 0;
+
+        for (int i = 0; i < block.count; i++) {
+            int opcode = block.opcodes[i];
+            int next = block.nextPCs[i];
+            int before = done;
+            done += timing.instructionCycles(opcode, modes[opcode], block.operands[i], cycles);
+
+            String op = operand(modes[opcode], block.operands[i], next);
+            if (op == null) return null;
+            String code = instruction(opcode, op, block.operands[i], next, timing);
+            if (code == null) return null;
+            code = timed(code, before);
+
+            sb.append("            // ").append(String.format("%04X", i == 0 ? block.start : block.nextPCs[i - 1]))
+              .append('\n');
+            sb.append("            ").append(code).append('\n');
+
+            if (checkWrites && writesMemory(opcode) && i < block.count - 1) {
+                sb.append("            if (!block.valid || cpu.isEventDue(").append(done).append(")) { pc = ").append(next)
+                  .append("; cyc = ").append(done).append("; break exit; }\n");
+            }
+        }
+
+        return sb.toString();
+    }
+
+    // Accès mémoire avec les cycles du bloc écoulés avant l'instruction : un
+    // périphérique lit getCycles() comme sous l'interpréteur
+    private static String timed(String code, int before) {
+        String t = "cpu, mem, " + before + ", ";
+        return code.replace("mem.readByte(", "rd8(" + t)
+                   .replace("mem.writeByte(", "wr8(" + t)
+                   .replace("rd16(mem, ", "rd16(" + t)
+                   .replace("wr16(mem, ", "wr16(" + t);
+    }
+
+    // Expression Java de l'opérande ; null si le postbyte est illégal.
+    // Les modes indexés à effet de bord (,R+ ,-R ...) modifient le registre
+    // dans l'expression, évaluée une seule fois par les gabarits
+    private static String operand(int mode, int arg, int next) {
+        switch (mode) {
+            case CPU6809.OP_DIR:
+                return "((dp << 8) | " + arg + ")";
+            case CPU6809.OP_IDX: {
+                int post = arg >>> 16;
+                int e = IndexedPostbyte.entry(post);
+                String ea = indexed(e, arg & 0xFFFF, next);
+                if (ea == null) return null;
+                return IndexedPostbyte.isIndirect(e) ? "rd16(mem, " + ea + ")" : ea;
+            }
+            default:
+                return String.valueOf(arg);
+        }
+    }
+
+    private static String indexed(int e, int offset, int next) {
+        String r;
+        switch (IndexedPostbyte.base(e)) {
+            case IndexedPostbyte.REG_X: r = "x"; break;
+            case IndexedPostbyte.REG_Y: r = "y"; break;
+            case IndexedPostbyte.REG_U: r = "u"; break;
+            case IndexedPostbyte.REG_S: r = "s"; break;
+            case IndexedPostbyte.REG_PC:
+                // PC connu à la traduction : adresse constante
+                int disp = IndexedPostbyte.kind(e) == IndexedPostbyte.OFF8 ? (byte) offset : (short) offset;
+                return String.valueOf((next + disp) & 0xFFFF);
+            default:
+                return String.valueOf(offset); // [n16]
+        }
+
+        switch (IndexedPostbyte.kind(e)) {
+            case IndexedPostbyte.ZERO:  return r;
+            case IndexedPostbyte.OFF5:  return "((" + r + " + " + IndexedPostbyte.offset5(e) + ") & 0xFFFF)";
+            case IndexedPostbyte.OFF8:  return "((" + r + " + " + (byte) offset + ") & 0xFFFF)";
+            case IndexedPostbyte.OFF16: return "((" + r + " + " + (short) offset + ") & 0xFFFF)";
+            case IndexedPostbyte.ACC_A: return "((" + r + " + (byte) a) & 0xFFFF)";
+            case IndexedPostbyte.ACC_B: return "((" + r + " + (byte) b) & 0xFFFF)";
+            case IndexedPostbyte.ACC_D: return "((" + r + " + (short) ((a << 8) | b)) & 0xFFFF)";
+            case IndexedPostbyte.INC1:  return "(((" + r + " = (" + r + " + 1) & 0xFFFF) - 1) & 0xFFFF)";
+            case IndexedPostbyte.INC2:  return "(((" + r + " = (" + r + " + 2) & 0xFFFF) - 2) & 0xFFFF)";
+            case IndexedPostbyte.DEC1:  return "(" + r + " = (" + r + " - 1) & 0xFFFF)";
+            case IndexedPostbyte.DEC2:  return "(" + r + " = (" + r + " - 2) & 0xFFFF)";
+            default:                    return null;
+        }
+    }
+
+    static boolean writesMemory(int opcode) {
+        switch (opcode) {
+            case 0x97: case 0xA7: case 0xB7: case 0xD7: case 0xE7: case 0xF7:
+            case 0x9F: case 0xAF: case 0xBF: case 0xDF: case 0xEF: case 0xFF:
+            case 0x0F: case 0x6F: case 0x7F:
+            case 0x0C: case 0x0A: case 0x6A: case 0x7A:
+            case 0x00: case 0x60: case 0x70:
+            case 0x34: case 0x36:
+            case 0x9D: case 0xAD: case 0xBD:
+            case 0x8D: case 0x17:
+            case CPU6809.P2 | 0x9F: case CPU6809.P2 | 0xAF: case CPU6809.P2 | 0xBF:
+            case CPU6809.P2 | 0xDF: case CPU6809.P2 | 0xEF: case CPU6809.P2 | 0xFF:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Même sémantique que CPU6809.executeSwitch ; op = valeur, adresse
+    // ou cible de branche. Les opcodes préfixés sont des index P2 | op, P3 | op
+    private static String instruction(int opcode, String op, int arg, int next, CycleModel timing) {
+        if ((opcode & 0xFF) >= 0x20 && (opcode & 0xFF) <= 0x2F && opcode < CPU6809.P3) {
+            // Bcc / LBcc : dernière instruction du bloc, pc vaut déjà la suite
+            if (opcode > 0xFF && timing.longBranch != 0) {
+                return "if (branch(cc, " + (opcode & 0x0F) + ")) { pc = " + op + "; cyc += " + timing.longBranch + "; }";
+            }
+            return "if (branch(cc, " + (opcode & 0x0F) + ")) pc = " + op + ";";
+        }
+        switch (opcode) {
+            // LDA / LDB / LDX / LDU
+            case 0x86: return "a = " + op + "; cc = ld8(cc, a);";
+            case 0x96: case 0xA6: case 0xB6: return "a = mem.readByte(" + op + "); cc = ld8(cc, a);";
+            case 0xC6: return "b = " + op + "; cc = ld8(cc, b);";
+            case 0xD6: case 0xE6: case 0xF6: return "b = mem.readByte(" + op + "); cc = ld8(cc, b);";
+            case 0x8E: return "x = " + op + "; cc = ld16(cc, x);";
+            case 0x9E: case 0xAE: case 0xBE: return "x = rd16(mem, " + op + "); cc = ld16(cc, x);";
+            case 0xCE: return "u = " + op + "; cc = ld16(cc, u);";
+            case 0xDE: case 0xEE: case 0xFE: return "u = rd16(mem, " + op + "); cc = ld16(cc, u);";
+
+            // STA / STB / STX / STU
+            case 0x97: case 0xA7: case 0xB7: return "mem.writeByte(" + op + ", a); cc = ld8(cc, a);";
+            case 0xD7: case 0xE7: case 0xF7: return "mem.writeByte(" + op + ", b); cc = ld8(cc, b);";
+            case 0x9F: case 0xAF: case 0xBF: return "wr16(mem, " + op + ", x); cc = ld16(cc, x);";
+            case 0xDF: case 0xEF: case 0xFF: return "wr16(mem, " + op + ", u); cc = ld16(cc, u);";
+
+            // ADD / SUB
+            case 0x8B: return "{ int v = " + op + "; int r = a + v; cc = add8(cc, a, v, r); a = r & 0xFF; }";
+            case 0x9B: case 0xAB: case 0xBB:
+                return "{ int v = mem.readByte(" + op + "); int r = a + v; cc = add8(cc, a, v, r); a = r & 0xFF; }";
+            case 0xCB: return "{ int v = " + op + "; int r = b + v; cc = add8(cc, b, v, r); b = r & 0xFF; }";
+            case 0xDB: case 0xEB: case 0xFB:
+                return "{ int v = mem.readByte(" + op + "); int r = b + v; cc = add8(cc, b, v, r); b = r & 0xFF; }";
+            case 0x80: return "{ int v = " + op + "; int r = a - v; cc = sub8(cc, a, v, r); a = r & 0xFF; }";
+            case 0x90: case 0xA0: case 0xB0:
+                return "{ int v = mem.readByte(" + op + "); int r = a - v; cc = sub8(cc, a, v, r); a = r & 0xFF; }";
+            case 0xC0: return "{ int v = " + op + "; int r = b - v; cc = sub8(cc, b, v, r); b = r & 0xFF; }";
+            case 0xD0: case 0xE0: case 0xF0:
+                return "{ int v = mem.readByte(" + op + "); int r = b - v; cc = sub8(cc, b, v, r); b = r & 0xFF; }";
+
+            // AND / OR / EOR
+            case 0x84: return "a &= " + op + "; cc = ld8(cc, a);";
+            case 0x94: case 0xA4: case 0xB4: return "a &= mem.readByte(" + op + "); cc = ld8(cc, a);";
+            case 0xC4: return "b &= " + op + "; cc = ld8(cc, b);";
+            case 0xD4: case 0xE4: case 0xF4: return "b &= mem.readByte(" + op + "); cc = ld8(cc, b);";
+            case 0x8A: return "a |= " + op + "; cc = ld8(cc, a);";
+            case 0x9A: case 0xAA: return "a |= mem.readByte(" + op + "); cc = ld8(cc, a);";
+            case 0xCA: return "b |= " + op + "; cc = ld8(cc, b);";
+            case 0xDA: case 0xEA: case 0xFA: return "b |= mem.readByte(" + op + "); cc = ld8(cc, b);";
+            case 0x88: return "a ^= " + op + "; cc = ld8(cc, a);";
+            case 0xC8: return "b ^= " + op + "; cc = ld8(cc, b);";
+            case 0xD8: case 0xE8: case 0xF8: return "b ^= mem.readByte(" + op + "); cc = ld8(cc, b);";
+
+            // CLR / INC / DEC / NEG
+            case 0x4F: return "a = 0; cc = clr(cc);";
+            case 0x5F: return "b = 0; cc = clr(cc);";
+            case 0x0F: case 0x6F: case 0x7F: return "mem.writeByte(" + op + ", 0); cc = clr(cc);";
+            case 0x0C:
+                return "{ int ea = " + op + "; int r = (mem.readByte(ea) + 1) & 0xFF; mem.writeByte(ea, r); cc = inc(cc, r); }";
+            case 0x0A: case 0x6A: case 0x7A:
+                return "{ int ea = " + op + "; int r = (mem.readByte(ea) - 1) & 0xFF; mem.writeByte(ea, r); cc = dec(cc, r); }";
+            case 0x00: case 0x60: case 0x70:
+                return "{ int ea = " + op + "; int v = mem.readByte(ea); int r = (-v) & 0xFF; mem.writeByte(ea, r); cc = neg(cc, v, r); }";
+            case 0x4C: return "a = (a + 1) & 0xFF; cc = inc(cc, a);";
+            case 0x5C: return "b = (b + 1) & 0xFF; cc = inc(cc, b);";
+            case 0x4A: return "a = (a - 1) & 0xFF; cc = dec(cc, a);";
+            case 0x5A: return "b = (b - 1) & 0xFF; cc = dec(cc, b);";
+
+            // JMP / JSR / RTS
+            case 0x0E: case 0x6E: case 0x7E: return "pc = " + op + ";";
+            case 0x9D: case 0xAD: case 0xBD:
+                return "{ int ea = " + op + "; " + push16("s", String.valueOf(next)) + " pc = ea; }";
+            case 0x39:
+                return pop16("s", "pc");
+
+            // LDY / LDS / STY / STS (page 2)
+            case CPU6809.P2 | 0x8E: return "y = " + op + "; cc = ld16(cc, y);";
+            case CPU6809.P2 | 0x9E: case CPU6809.P2 | 0xAE: case CPU6809.P2 | 0xBE:
+                return "y = rd16(mem, " + op + "); cc = ld16(cc, y);";
+            case CPU6809.P2 | 0xCE: return "s = " + op + "; armNmi(cpu); cc = ld16(cc, s);";
+            case CPU6809.P2 | 0xDE: case CPU6809.P2 | 0xEE: case CPU6809.P2 | 0xFE:
+                return "s = rd16(mem, " + op + "); armNmi(cpu); cc = ld16(cc, s);";
+            case CPU6809.P2 | 0x9F: case CPU6809.P2 | 0xAF: case CPU6809.P2 | 0xBF:
+                return "wr16(mem, " + op + ", y); cc = ld16(cc, y);";
+            case CPU6809.P2 | 0xDF: case CPU6809.P2 | 0xEF: case CPU6809.P2 | 0xFF:
+                return "wr16(mem, " + op + ", s); cc = ld16(cc, s);";
+
+            // CMPD / CMPY / CMPU / CMPS
+            case CPU6809.P2 | 0x83: return compare16("((a << 8) | b)", op);
+            case CPU6809.P2 | 0x93: case CPU6809.P2 | 0xA3: case CPU6809.P2 | 0xB3:
+                return compare16("((a << 8) | b)", "rd16(mem, " + op + ")");
+            case CPU6809.P2 | 0x8C: return compare16("y", op);
+            case CPU6809.P2 | 0x9C: case CPU6809.P2 | 0xAC: case CPU6809.P2 | 0xBC:
+                return compare16("y", "rd16(mem, " + op + ")");
+            case CPU6809.P3 | 0x83: return compare16("u", op);
+            case CPU6809.P3 | 0x93: case CPU6809.P3 | 0xA3: case CPU6809.P3 | 0xB3:
+                return compare16("u", "rd16(mem, " + op + ")");
+            case CPU6809.P3 | 0x8C: return compare16("s", op);
+            case CPU6809.P3 | 0x9C: case CPU6809.P3 | 0xAC: case CPU6809.P3 | 0xBC:
+                return compare16("s", "rd16(mem, " + op + ")");
+
+            // LBRA / BSR / LBSR
+            case 0x16: return "pc = " + op + ";";
+            case 0x8D: case 0x17:
+                return "{ " + push16("s", String.valueOf(next)) + " pc = " + op + "; }";
+
+            // PSHS / PULS / PSHU / PULU (masque connu à la traduction)
+            case 0x34: return pushRegs("s", "u", arg, next);
+            case 0x35: return pullRegs("s", "u", arg);
+            case 0x36: return pushRegs("u", "s", arg, next);
+            case 0x37: return pullRegs("u", "s", arg);
+
+            case 0x12: return ";";
+
+            default:
+                return null;
+        }
+    }
+
+    private static String compare16(String reg, String value) {
+        // opérande d'abord : un mode indexé peut modifier le registre comparé
+        return "{ int v = " + value + "; int w = " + reg + "; cc = sub16(cc, w, v, w - v); }";
+    }
+
+    private static String push(String sp, String value) {
+        return sp + " = (" + sp + " - 1) & 0xFFFF; mem.writeByte(" + sp + ", " + value + ");";
+    }
+
+    private static String pop(String sp, String target) {
+        return target + " = mem.readByte(" + sp + "); " + sp + " = (" + sp + " + 1) & 0xFFFF;";
+    }
+
+    // 16 bits : octet fort à l'adresse basse, comme le 6809
+    private static String push16(String sp, String reg) {
+        return push(sp, reg + " & 0xFF") + " " + push(sp, "(" + reg + " >> 8) & 0xFF");
+    }
+
+    private static String pop16(String sp, String target) {
+        return "{ int hi = mem.readByte(" + sp + "); " + sp + " = (" + sp + " + 1) & 0xFFFF; "
+                + "int lo = mem.readByte(" + sp + "); " + sp + " = (" + sp + " + 1) & 0xFFFF; "
+                + target + " = (hi << 8) | lo; }";
+    }
+
+    private static String pushRegs(String sp, String other, int mask, int next) {
+        StringBuilder sb = new StringBuilder();
+        if ((mask & 0x80) != 0) sb.append(push16(sp, String.valueOf(next))).append(' ');
+        if ((mask & 0x40) != 0) sb.append(push16(sp, other)).append(' ');
+        if ((mask & 0x20) != 0) sb.append(push16(sp, "y")).append(' ');
+        if ((mask & 0x10) != 0) sb.append(push16(sp, "x")).append(' ');
+        if ((mask & 0x08) != 0) sb.append(push(sp, "dp")).append(' ');
+        if ((mask & 0x04) != 0) sb.append(push(sp, "b")).append(' ');
+        if ((mask & 0x02) != 0) sb.append(push(sp, "a")).append(' ');
+        if ((mask & 0x01) != 0) sb.append(push(sp, "cc")).append(' ');
+        return sb.length() == 0 ? ";" : sb.toString().trim();
+    }
+
+    private static String pullRegs(String sp, String other, int mask) {
+        StringBuilder sb = new StringBuilder();
+        if ((mask & 0x01) != 0) sb.append(pop(sp, "cc")).append(' ');
+        if ((mask & 0x02) != 0) sb.append(pop(sp, "a")).append(' ');
+        if ((mask & 0x04) != 0) sb.append(pop(sp, "b")).append(' ');
+        if ((mask & 0x08) != 0) sb.append(pop(sp, "dp")).append(' ');
+        if ((mask & 0x10) != 0) sb.append(pop16(sp, "x")).append(' ');
+        if ((mask & 0x20) != 0) sb.append(pop16(sp, "y")).append(' ');
+        if ((mask & 0x40) != 0) sb.append(pop16(sp, other)).append(' ');
+        if ((mask & 0x40) != 0 && other.equals("s")) sb.append("armNmi(cpu); ");
+        if ((mask & 0x80) != 0) sb.append(pop16(sp, "pc")).append(' ');
+        return sb.length() == 0 ? ";" : sb.toString().trim();
+    }
+
+    // Source complète d'une classe de bloc
+    static String classSource(String className, String body, int endPC, int totalCycles) {
+        return "package cpu;\n"
+                + "\n"
+                + "import memory.Memory;\n"
+                + "import static cpu.TranslatedOps.*;\n"
+                + "\n"
+                + "final class " + className + " implements CompiledBlock {\n"
+                + "\n"
+                + "    public " + className + "() {\n"
+                + "    }\n"
+                + "\n"
+                + "    @Override\n"
+                + "    public int run(CPU6809 cpu, Memory mem, DecodedBlock block) {\n"
+                + "        int a = cpu.getA(), b = cpu.getB(), dp = cpu.getDP(), cc = cpu.getCCR();\n"
+                + "        int x = cpu.getX(), y = cpu.getY(), s = cpu.getS(), u = cpu.getU();\n"
+                + "        int pc = " + endPC + ";\n"
+                + "        int cyc = " + totalCycles + ";\n"
+                + "        exit: {\n"
+                + body
+                + "        }\n"
+                + "        cpu.setA(a); cpu.setB(b); cpu.setDP(dp); cpu.setCCR(cc);\n"
+                + "        cpu.setX(x); cpu.setY(y); storeS(cpu, s); cpu.setU(u);\n"
+                + "        cpu.setPC(pc);\n"
+                + "        return cyc;\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    // COMPILATION EN MÉMOIRE
+
+    private static CompiledBlock compile(String key) {
+        // la clé contient le corps ; fin de bloc et cycles sont en tête
+        int nl = key.indexOf('\n');
+        String[] header = key.substring(0, nl).split(" ");
+        String body = key.substring(nl + 1);
+        String className = "Block" + COUNTER.incrementAndGet();
+        String source = classSource(className, body,
+                Integer.parseInt(header[0]), Integer.parseInt(header[1]));
+
+        byte[] bytes = javac("cpu." + className, source);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledBlock) lookup.lookupClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Chargement de " + className + " impossible : " + e, e);
+        }
+    }
+
+    private static byte[] javac(String className, String source) {
+        JavaFileObject src = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (fileManager == null) fileManager = COMPILER.getStandardFileManager(null, null, null);
+        JavaFileManager fm = new ForwardingJavaFileManager<JavaFileManager>(fileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name,
+                                                       JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name + ".class"), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return out;
+                    }
+                };
+            }
+        };
+
+        List<String> options = new ArrayList<>();
+        options.add("-classpath");
+        options.add(System.getProperty("java.class.path"));
+        options.add("-g:none");
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Boolean ok = COMPILER.getTask(null, fm, diagnostics, options, null,
+                Collections.singletonList(src)).call();
+        if (!Boolean.TRUE.equals(ok)) {
+            StringBuilder sb = new StringBuilder("Compilation de " + className + " impossible :");
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                sb.append('\n').append(d.getLineNumber()).append(": ").append(d.getMessage(Locale.ROOT));
+            }
+            throw new IllegalStateException(sb.toString());
+        }
+        return out.toByteArray();
+    }
+}
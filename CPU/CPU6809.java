@@ -3,6 +3,11 @@ package cpu;
 import debugger.Debugger;
 import memory.Memory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
 public class CPU6809 {
 
     // registres 
@@ -20,12 +25,106 @@ public class CPU6809 {
     // declaration memoire 
     private final Memory memory;
 
-    // === Tableau d'opcodes (256 possibles) ===
-    private final Instruction[] opcodes = new Instruction[256];
+    // === Tableau d'opcodes : 3 pages de 256 (sans préfixe, $10, $11) ===
+    // index = page * 256 + opcode, le préfixe ne coûte qu'un calcul.
+    // Construit une fois et partagé par toutes les instances : les
+    // Instruction et leurs lambdas ne dépendent que du CPU reçu en paramètre
+    static final int PAGE_SIZE = 256;
+    static final int P2 = 0x100;
+    static final int P3 = 0x200;
+    private static final Instruction[] OPCODES = buildInstructionTable();
 
     // Compteur de cycles
     private long cycles = 0;
 
+    // Moteur d'exécution : table d'Instruction, switch(opcode),
+    // switch sur des blocs pré-décodés (cache par PC), ou blocs pré-décodés
+    // dont les plus chauds sont recompilés en bytecode JVM
+    public enum Engine {
+        TABLE,
+        SWITCH,
+        BLOCK,
+        TIERED
+    }
+
+    private Engine engine = Engine.TABLE;
+
+    // Modèle de temps : FAST (coût fixe par opcode) ou EXACT
+    private CycleModel timing = CycleModel.FAST;
+
+    // Cache de blocs décodés (moteur BLOCK)
+    private BlockCache blockCache;
+    private static final int MAX_BLOCK = 64;
+    private static final int BLOCK_LIMIT = 0xFF00; // pas de cache sur la page d'E/S
+
+    // Moteur TIERED : nombre d'exécutions avant recompilation d'un bloc
+    private static final int HOT_THRESHOLD = 1000;
+    private boolean tiered = false;
+
+    // Tables dérivées de opcodes pour le moteur SWITCH (mode d'opérande, cycles)
+    static final int OP_NONE = -1;
+    static final int OP_INH  = 0;
+    static final int OP_IMM8 = 1;
+    static final int OP_IMM16 = 2;
+    static final int OP_DIR  = 3;
+    static final int OP_IDX  = 4;
+    static final int OP_EXT  = 5;
+    static final int OP_REL8 = 6;
+    static final int OP_REL16 = 7;
+
+    // Partagées, en lecture seule après l'initialisation de la classe
+    static final int[] OPERAND_MODES = new int[3 * PAGE_SIZE];
+    static final int[] CYCLE_TABLE = new int[3 * PAGE_SIZE];
+
+    static {
+        buildSwitchTables();
+    }
+
+    // Raison de sortie de run() / runUntil()
+    public enum ExitReason {
+        BUDGET_EXHAUSTED,
+        BREAKPOINT,
+        ILLEGAL_OPCODE,
+        HALTED,
+        STOP_REQUESTED,
+        IDLE            // attente (CWAI, SYNC, boucle) sans événement prévu, budget illimité
+    }
+
+    // Ligne HALT et demande d'arrêt (peut venir d'un autre thread)
+    private volatile boolean halted = false;
+    private volatile boolean stopRequested = false;
+
+    // Le dernier run() s'est terminé en attente prouvée sans événement prévu
+    private boolean idle = false;
+
+    // Lignes IRQ / FIRQ en OU câblé (un bit par source) et front NMI mémorisé.
+    // Comme au reset matériel, NMI n'est armée qu'au premier chargement de S
+    private int irqLines, firqLines;
+    private boolean nmiPending, nmiArmed;
+
+    // Attente d'interruption : CWAI (état déjà empilé) ou SYNC
+    private static final int RUNNING = 0;
+    private static final int WAIT_CWAI = 1;
+    private static final int WAIT_SYNC = 2;
+    private int waitState = RUNNING;
+
+    // Prise d'interruption : empilement + lecture du vecteur
+    private static final int ENTRY_CYCLES = 19;      // NMI / IRQ, état complet
+    private static final int FIRQ_ENTRY_CYCLES = 10; // PC et CC seulement
+    private static final int CWAI_ENTRY_CYCLES = 7;  // après CWAI : vecteur seul
+
+    // Échéancier des périphériques (cycles absolus)
+    private final EventScheduler events = new EventScheduler(this::eventScheduled);
+
+    // Broche RESET partagée avec les périphériques (IoBus) : appelés par
+    // reset() une fois lignes et échéancier vidés. Pas copiés par fork()
+    private final List<Runnable> resetHooks = new ArrayList<>();
+
+    // Point de contrôle : la boucle d'exécution ne compare que cycles à cette
+    // valeur. Prochain événement, ou Long.MIN_VALUE quand une interruption,
+    // une attente, HALT ou une demande d'arrêt est à traiter
+    private volatile long checkpoint = Long.MIN_VALUE;
+
     // Flags E F H I N Z V C
     private static final int FLAG_E = 0x80;
     private static final int FLAG_F = 0x40;
@@ -36,11 +135,46 @@ public class CPU6809 {
     private static final int FLAG_V = 0x02;
     private static final int FLAG_C = 0x01;
 
+    // Flags paresseux : on mémorise la dernière opération (type, opérandes,
+    // résultat) et N/Z/V/C/H ne sont recalculés dans CCR qu'à la lecture
+    private boolean lazyFlags = false;
+    private int lazyOp = LAZY_NONE;
+    private int lazyA, lazyB, lazyR;
+
+    private static final int LAZY_NONE  = 0;
+    private static final int LAZY_NZ8   = 1;  // N Z
+    private static final int LAZY_NZ16  = 2;  // N Z
+    private static final int LAZY_LD8   = 3;  // N Z, V=0 (chargements, logique)
+    private static final int LAZY_LD16  = 4;  // N Z, V=0
+    private static final int LAZY_ADD8  = 5;  // H N Z V C
+    private static final int LAZY_SUB8  = 6;  // N Z V C
+    private static final int LAZY_INC   = 7;  // N Z V
+    private static final int LAZY_DEC   = 8;  // N Z V
+    private static final int LAZY_CLR   = 9;  // N Z V C
+    private static final int LAZY_NEG   = 10; // N Z V C
+    private static final int LAZY_SUB16 = 11; // N Z V C
+
+    // Flags définis par chaque type d'opération
+    private static final int[] LAZY_MASKS = {
+            0,
+            FLAG_N | FLAG_Z,
+            FLAG_N | FLAG_Z,
+            FLAG_N | FLAG_Z | FLAG_V,
+            FLAG_N | FLAG_Z | FLAG_V,
+            FLAG_H | FLAG_N | FLAG_Z | FLAG_V | FLAG_C,
+            FLAG_N | FLAG_Z | FLAG_V | FLAG_C,
+            FLAG_N | FLAG_Z | FLAG_V,
+            FLAG_N | FLAG_Z | FLAG_V,
+            FLAG_N | FLAG_Z | FLAG_V | FLAG_C,
+            FLAG_N | FLAG_Z | FLAG_V | FLAG_C,
+            FLAG_N | FLAG_Z | FLAG_V | FLAG_C
+    };
+
     // ====== Constructeur ======
+    // Tables partagées : une instance ne contient que l'état du CPU
     public CPU6809(Memory memory) {
         this.memory = memory;
         reset(); //pour vider les registres 
-        buildInstructionTable();
     }
 
     //Getters / setters 
@@ -66,7 +200,11 @@ public class CPU6809 {
     public void setY(int value) { Y = value & 0xFFFF; }
 
     public int getS() { return S & 0xFFFF; }
-    public void setS(int value) { S = value & 0xFFFF; }
+    public void setS(int value) { S = value & 0xFFFF; nmiArmed = true; }
+
+    // Code traduit : S recopié sans armer NMI ; armNmi() après LDS / PULU S
+    void storeS(int value) { S = value & 0xFFFF; }
+    void armNmi() { nmiArmed = true; }
 
     public int getU() { return U & 0xFFFF; }
     public void setU(int value) { U = value & 0xFFFF; }
@@ -77,18 +215,113 @@ public class CPU6809 {
     public int getDP() { return DP & 0xFF; }
     public void setDP(int value) { DP = value & 0xFF; }
 
-    public int getCCR() { return CCR & 0xFF; }
-    public void setCCR(int value) { CCR = value & 0xFF; }
+    public int getCCR() {
+        if (lazyOp != LAZY_NONE) materializeFlags();
+        return CCR & 0xFF;
+    }
+    public void setCCR(int value) {
+        lazyOp = LAZY_NONE;
+        int unmasked = CCR & ~value & (FLAG_I | FLAG_F);
+        CCR = value & 0xFF;
+        // I ou F libéré avec une ligne active : interruption à prendre
+        if (unmasked != 0 && (irqLines | firqLines) != 0) checkpoint = Long.MIN_VALUE;
+    }
 
     public long getCycles() { return cycles; }
 
+    // Cycles exécutés hors du CPU (code recompilé)
+    public void addCycles(long n) { cycles += n; }
+
+    public Engine getEngine() { return engine; }
+    public void setEngine(Engine engine) {
+        if (engine == Engine.TIERED && !BlockCompiler.isAvailable()) {
+            engine = Engine.BLOCK; // pas de compilateur Java (JRE seul)
+        }
+        if ((engine == Engine.BLOCK || engine == Engine.TIERED) && blockCache == null) {
+            blockCache = new BlockCache(memory);
+        }
+        this.engine = engine;
+        this.tiered = engine == Engine.TIERED;
+    }
+
+    // Cycles exacts : postbyte indexé, octets empilés, LBcc prise, RTI complet
+    public boolean isExactCycles() { return timing == CycleModel.EXACT; }
+    public void setExactCycles(boolean value) {
+        timing = value ? CycleModel.EXACT : CycleModel.FAST;
+        if (blockCache != null) blockCache.clear(); // blocs compilés avec l'autre modèle
+    }
+
+    public boolean isLazyFlags() { return lazyFlags; }
+    public void setLazyFlags(boolean value) {
+        if (!value) materializeFlags();
+        lazyFlags = value;
+    }
+
+    public boolean isHalted() { return halted; }
+    public void setHalted(boolean value) { halted = value; checkpoint = Long.MIN_VALUE; }
+
+    // Demande l'arrêt de run()/runUntil() à la prochaine instruction
+    public void requestStop() { stopRequested = true; checkpoint = Long.MIN_VALUE; }
+
+    // Vrai si le dernier run() a fini en attente (CWAI, SYNC, boucle
+    // d'attente active) sans événement prévu : seule une entrée externe
+    // peut faire évoluer le CPU. La détection de boucle dépend du moteur
+    public boolean isIdle() { return idle; }
+
+    // Lignes d'interruption : source = bit propre au périphérique
+    public void setIrq(int source, boolean active) {
+        irqLines = active ? irqLines | source : irqLines & ~source;
+        if (active) checkpoint = Long.MIN_VALUE;
+    }
+
+    public void setFirq(int source, boolean active) {
+        firqLines = active ? firqLines | source : firqLines & ~source;
+        if (active) checkpoint = Long.MIN_VALUE;
+    }
+
+    // Front descendant sur NMI (ignoré tant que S n'a pas été chargé)
+    public void nmi() {
+        if (!nmiArmed) return;
+        nmiPending = true;
+        checkpoint = Long.MIN_VALUE;
+    }
+
+    public boolean isIrqActive() { return irqLines != 0; }
+    public boolean isFirqActive() { return firqLines != 0; }
+
+    // CWAI ou SYNC en attente d'interruption
+    public boolean isWaiting() { return waitState != RUNNING; }
+
+    public EventScheduler getScheduler() { return events; }
+
+    public void addResetHook(Runnable hook) { resetHooks.add(hook); }
+
+    // Événement ou interruption à traiter, en comptant 'pending' cycles
+    // déjà exécutés mais pas encore ajoutés (code recompilé)
+    public boolean isEventDue(int pending) {
+        return cycles + pending >= checkpoint;
+    }
+
+    private void eventScheduled() {
+        long next = events.nextCycle();
+        if (next < checkpoint) checkpoint = next;
+    }
+
+    // opcode sur 1 octet, ou $10xx / $11xx pour les pages 2 et 3
     public Instruction getInstruction(int opcode) {
-        return opcodes[opcode & 0xFF];
+        int index = Instruction.tableIndex(opcode);
+        return index < 0 ? null : OPCODES[index];
+    }
+
+    // Opcode complet ($10xx / $11xx) correspondant à un index de la table
+    static int fullOpcode(int index) {
+        return index < PAGE_SIZE ? index : (((index >> 8) + 0x0F) << 8) | (index & 0xFF);
     }
 
     
     //  Gestion des flags 
     private void setFlag(int flag, boolean value) {
+        if (lazyOp != LAZY_NONE) materializeFlags();
         if (value) {
             CCR |= flag; // OU binaire
         } else {
@@ -97,6 +330,7 @@ public class CPU6809 {
     }
 
     private boolean getFlag(int flag) {
+        if (lazyOp != LAZY_NONE) materializeFlags();
         return (CCR & flag) != 0;
     }
 
@@ -105,10 +339,105 @@ public class CPU6809 {
     private boolean isC() { return getFlag(FLAG_C); }
     private boolean isV() { return getFlag(FLAG_V); }
 
-    private void clearV() { setFlag(FLAG_V, false); }
+    private void clearV() {
+        // NZ suivi de clearV (chargements) : on garde le calcul paresseux
+        if (lazyOp == LAZY_NZ8) { lazyOp = LAZY_LD8; return; }
+        if (lazyOp == LAZY_NZ16) { lazyOp = LAZY_LD16; return; }
+        setFlag(FLAG_V, false);
+    }
+
+    // Enregistre une opération paresseuse ; les flags de l'opération
+    // précédente que la nouvelle ne redéfinit pas sont d'abord calculés
+    private void lazy(int op, int a, int b, int r) {
+        if ((LAZY_MASKS[lazyOp] & ~LAZY_MASKS[op]) != 0) {
+            materializeFlags();
+        }
+        lazyOp = op;
+        lazyA = a;
+        lazyB = b;
+        lazyR = r;
+    }
+
+    // Reconstruit dans CCR les flags de la dernière opération paresseuse
+    private void materializeFlags() {
+        int op = lazyOp;
+        if (op == LAZY_NONE) return;
+        lazyOp = LAZY_NONE;
+
+        int a = lazyA;
+        int b = lazyB;
+        int result = lazyR;
+        int f = 0;
+
+        switch (op) {
+            case LAZY_NZ8:
+            case LAZY_LD8: {
+                int r = result & 0xFF;
+                if (r == 0) f |= FLAG_Z;
+                if ((r & 0x80) != 0) f |= FLAG_N;
+                break;
+            }
+            case LAZY_NZ16:
+            case LAZY_LD16: {
+                int r = result & 0xFFFF;
+                if (r == 0) f |= FLAG_Z;
+                if ((r & 0x8000) != 0) f |= FLAG_N;
+                break;
+            }
+            case LAZY_ADD8: {
+                int r = result & 0xFF;
+                if (result > 0xFF) f |= FLAG_C;
+                if (r == 0) f |= FLAG_Z;
+                if ((r & 0x80) != 0) f |= FLAG_N;
+                if (((~(a ^ b) & (a ^ r)) & 0x80) != 0) f |= FLAG_V;
+                if ((((a & 0x0F) + (b & 0x0F)) & 0x10) != 0) f |= FLAG_H;
+                break;
+            }
+            case LAZY_SUB8: {
+                int r = result & 0xFF;
+                if ((result & 0x100) != 0) f |= FLAG_C;
+                if (r == 0) f |= FLAG_Z;
+                if ((r & 0x80) != 0) f |= FLAG_N;
+                if ((((a ^ b) & (a ^ r)) & 0x80) != 0) f |= FLAG_V;
+                break;
+            }
+            case LAZY_INC:
+            case LAZY_DEC: {
+                int r = result & 0xFF;
+                if (r == 0) f |= FLAG_Z;
+                if ((r & 0x80) != 0) f |= FLAG_N;
+                if (r == (op == LAZY_INC ? 0x80 : 0x7F)) f |= FLAG_V;
+                break;
+            }
+            case LAZY_CLR:
+                f = FLAG_Z;
+                break;
+            case LAZY_NEG: {
+                int r = result & 0xFF;
+                if (r == 0) f |= FLAG_Z;
+                if ((r & 0x80) != 0) f |= FLAG_N;
+                if (a != 0) f |= FLAG_C;
+                if (a == 0x80) f |= FLAG_V;
+                break;
+            }
+            case LAZY_SUB16: {
+                int r = result & 0xFFFF;
+                if ((result & 0x10000) != 0) f |= FLAG_C;
+                if (r == 0) f |= FLAG_Z;
+                if ((r & 0x8000) != 0) f |= FLAG_N;
+                if ((((a ^ b) & (a ^ r)) & 0x8000) != 0) f |= FLAG_V;
+                break;
+            }
+            default:
+                break;
+        }
+
+        CCR = (CCR & ~LAZY_MASKS[op]) | f;
+    }
 
     // Mise à jour N/Z pour 8 bits
     public void updateNZ8(int result) {
+        if (lazyFlags) { lazy(LAZY_NZ8, 0, 0, result); return; }
         int r = result & 0xFF;
         setFlag(FLAG_Z, r == 0);
         setFlag(FLAG_N, (r & 0x80) != 0);
@@ -116,6 +445,7 @@ public class CPU6809 {
 
     // Mise à jour N/Z pour 16 bits
     public void updateNZ16(int result) {
+        if (lazyFlags) { lazy(LAZY_NZ16, 0, 0, result); return; }
         int r = result & 0xFFFF;
         setFlag(FLAG_Z, r == 0);
         setFlag(FLAG_N, (r & 0x8000) != 0);
@@ -154,15 +484,103 @@ public class CPU6809 {
         return ((hi << 8) | lo) & 0xFFFF;
     }
 
-    // Reset 
+    // Opcode complet sous forme d'index de table : $10 / $11 sélectionnent
+    // la page 2 / 3 et l'octet suivant est lu dans la foulée
+    private int fetchOpcode() {
+        int op = fetch8();
+        if (op == Instruction.PAGE2 || op == Instruction.PAGE3) {
+            return ((op - 0x0F) << 8) | fetch8();
+        }
+        return op;
+    }
+
+    // Reset : remet tout l'état d'exécution à zéro sans rien réallouer
+    // (instances réutilisables). Moteur, modèle de temps et flags
+    // paresseux sont de la configuration et sont conservés
     public void reset() {
-        A = B = DP = CCR = 0;
+        A = B = DP = 0;
+        CCR = FLAG_I | FLAG_F; // IRQ et FIRQ masquées au reset
+        lazyOp = LAZY_NONE;
         X = Y = S = U = 0;
         cycles = 0;
+        halted = false;
+        stopRequested = false;
+        idle = false;
+        irqLines = firqLines = 0;
+        nmiPending = false;
+        nmiArmed = false;
+        waitState = RUNNING;
+        events.clear();
+        checkpoint = Long.MIN_VALUE;
+        // les périphériques repartent de leur état de reset et reprogramment
+        // leurs événements dans l'échéancier vidé
+        for (Runnable hook : resetHooks) hook.run();
         PC = readWord(0xFFFE);
  
     }
 
+    // INSTANTANÉ : registres, cycles, lignes d'interruption et échéancier.
+    // Avec Memory.snapshot(), sauvegarde complète en temps quasi constant
+    public static final class Snapshot {
+        private final int a, b, dp, cc, x, y, s, u, pc;
+        private final long cycles;
+        private final boolean halted;
+        private final int irqLines, firqLines;
+        private final boolean nmiPending, nmiArmed;
+        private final int waitState;
+        private final EventScheduler.Saved events;
+
+        private Snapshot(CPU6809 cpu) {
+            a = cpu.A; b = cpu.B; dp = cpu.DP; cc = cpu.getCCR();
+            x = cpu.X; y = cpu.Y; s = cpu.S; u = cpu.U; pc = cpu.PC;
+            cycles = cpu.cycles;
+            halted = cpu.halted;
+            irqLines = cpu.irqLines;
+            firqLines = cpu.firqLines;
+            nmiPending = cpu.nmiPending;
+            nmiArmed = cpu.nmiArmed;
+            waitState = cpu.waitState;
+            events = cpu.events.save();
+        }
+
+        public long getCycles() { return cycles; }
+        public int getPC() { return pc; }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    // Copie indépendante du CPU sur memory (en général memory.fork() de la
+    // mémoire d'origine) : même configuration, même état. Les événements
+    // programmés ne sont pas repris : ils visent les périphériques d'origine
+    public CPU6809 fork(Memory memory) {
+        CPU6809 copy = new CPU6809(memory);
+        copy.setEngine(engine);
+        copy.setExactCycles(isExactCycles());
+        copy.setLazyFlags(lazyFlags);
+        copy.restore(snapshot());
+        copy.events.clear();
+        return copy;
+    }
+
+    public void restore(Snapshot snap) {
+        A = snap.a; B = snap.b; DP = snap.dp;
+        CCR = snap.cc;
+        lazyOp = LAZY_NONE;
+        X = snap.x; Y = snap.y; S = snap.s; U = snap.u; PC = snap.pc;
+        cycles = snap.cycles;
+        halted = snap.halted;
+        idle = false;
+        irqLines = snap.irqLines;
+        firqLines = snap.firqLines;
+        nmiPending = snap.nmiPending;
+        nmiArmed = snap.nmiArmed;
+        waitState = snap.waitState;
+        events.restore(snap.events);
+        checkpoint = Long.MIN_VALUE;
+    }
+
     //Modes d'adressage 
     public int imm8() {
         return fetch8();
@@ -182,35 +600,128 @@ public class CPU6809 {
         return fetch16();
     }
 
+    // Branches : adresse cible = PC après l'opérande + déplacement signé
+    public int relative8() {
+        int offset = (byte) fetch8();
+        return (PC + offset) & 0xFFFF;
+    }
+
+    public int relative16() {
+        int offset = (short) fetch16();
+        return (PC + offset) & 0xFFFF;
+    }
+
+    // Condition d'une branche (4 bits bas de l'opcode Bcc / LBcc)
+    // les opcodes pairs testent la condition, les impairs son inverse
+    private boolean branchCondition(int cond) {
+        if (lazyOp != LAZY_NONE) materializeFlags();
+        int c = CCR;
+        boolean n = (c & FLAG_N) != 0;
+        boolean v = (c & FLAG_V) != 0;
+        boolean r;
+        switch (cond >> 1) {
+            case 0: r = true; break;                                 // BRA / BRN
+            case 1: r = (c & (FLAG_C | FLAG_Z)) == 0; break;         // BHI / BLS
+            case 2: r = (c & FLAG_C) == 0; break;                    // BCC / BCS
+            case 3: r = (c & FLAG_Z) == 0; break;                    // BNE / BEQ
+            case 4: r = !v; break;                                   // BVC / BVS
+            case 5: r = !n; break;                                   // BPL / BMI
+            case 6: r = n == v; break;                               // BGE / BLT
+            default: r = n == v && (c & FLAG_Z) == 0; break;         // BGT / BLE
+        }
+        return ((cond & 1) == 0) == r;
+    }
+
     
     public int indexedAddress() {
         int post = fetch8();
-        boolean useY = (post & 0b0010_0000) != 0;
-        int base = useY ? Y : X;
-        int mode = post & 0b0001_1111;
+        int offset;
+        switch (IndexedPostbyte.extraBytes(IndexedPostbyte.entry(post))) {
+            case 1:  offset = fetch8();  break;
+            case 2:  offset = fetch16(); break;
+            default: offset = 0;
+        }
+        return indexedAddress(post, offset);
+    }
+
+    // Adresse effective à partir du postbyte et de l'offset déjà lus
+    // (table IndexedPostbyte) ; PC vaut déjà l'adresse de l'instruction suivante
+    private int indexedAddress(int post, int offset) {
+        int e = IndexedPostbyte.entry(post);
+        int reg = IndexedPostbyte.base(e);
+        cycles += timing.postbyte[post];
 
         int addr;
-        switch (mode) {
-            case 0x00: // ,R
-                addr = base;
+        switch (IndexedPostbyte.kind(e)) {
+            case IndexedPostbyte.ZERO:
+                addr = indexReg(reg);
                 break;
-            case 0x08: { // offset8,R
-                int off8 = (byte)fetch8(); // signé
-                addr = (base + off8) & 0xFFFF;
+            case IndexedPostbyte.OFF5:
+                addr = indexReg(reg) + IndexedPostbyte.offset5(e);
                 break;
-            }
-            case 0x09: { // offset16,R
-                int off16 = (short)fetch16(); // signé
-                addr = (base + off16) & 0xFFFF;
+            case IndexedPostbyte.OFF8:
+                addr = indexReg(reg) + (byte) offset; // signé
+                break;
+            case IndexedPostbyte.OFF16:
+                addr = indexReg(reg) + (short) offset; // signé ; [n16] : base 0
+                break;
+            case IndexedPostbyte.ACC_A:
+                addr = indexReg(reg) + (byte) A;
+                break;
+            case IndexedPostbyte.ACC_B:
+                addr = indexReg(reg) + (byte) B;
+                break;
+            case IndexedPostbyte.ACC_D:
+                addr = indexReg(reg) + (short) getD();
+                break;
+            case IndexedPostbyte.INC1:
+                addr = indexReg(reg);
+                setIndexReg(reg, addr + 1);
+                break;
+            case IndexedPostbyte.INC2:
+                addr = indexReg(reg);
+                setIndexReg(reg, addr + 2);
+                break;
+            case IndexedPostbyte.DEC1:
+                addr = indexReg(reg) - 1;
+                setIndexReg(reg, addr);
+                break;
+            case IndexedPostbyte.DEC2:
+                addr = indexReg(reg) - 2;
+                setIndexReg(reg, addr);
                 break;
-            }
             default:
                 throw new IllegalStateException(
-                        String.format("Indexed mode %02X non géré (postbyte=%02X)", mode, post)
+                        String.format("Indexed mode %02X non géré (postbyte=%02X)", post & 0x1F, post)
                 );
         }
 
-        return addr & 0xFFFF;
+        addr &= 0xFFFF;
+        if (IndexedPostbyte.isIndirect(e)) {
+            addr = readWord(addr);
+        }
+        return addr;
+    }
+
+    private int indexReg(int reg) {
+        switch (reg) {
+            case IndexedPostbyte.REG_X:  return X;
+            case IndexedPostbyte.REG_Y:  return Y;
+            case IndexedPostbyte.REG_U:  return U;
+            case IndexedPostbyte.REG_S:  return S;
+            case IndexedPostbyte.REG_PC: return PC;
+            default:                     return 0;
+        }
+    }
+
+    private void setIndexReg(int reg, int value) {
+        value &= 0xFFFF;
+        switch (reg) {
+            case IndexedPostbyte.REG_X: X = value; break;
+            case IndexedPostbyte.REG_Y: Y = value; break;
+            case IndexedPostbyte.REG_U: U = value; break;
+            default:                    S = value; break;
+        }
     }
 
   
@@ -226,14 +737,16 @@ public class CPU6809 {
         return v;
     }
 
+    // 16 bits : octet faible empilé d'abord, l'octet fort se retrouve à
+    // l'adresse basse (lecture par LDX n,S)
     private void push16S(int value) {
-        push8S((value >> 8) & 0xFF);
         push8S(value & 0xFF);
+        push8S((value >> 8) & 0xFF);
     }
 
     private int pop16S() {
-        int low = pop8S();
         int high = pop8S();
+        int low = pop8S();
         return ((high << 8) | low) & 0xFFFF;
     }
 
@@ -249,13 +762,13 @@ public class CPU6809 {
     }
 
     private void push16U(int value) {
-        push8U((value >> 8) & 0xFF);
         push8U(value & 0xFF);
+        push8U((value >> 8) & 0xFF);
     }
 
     private int pop16U() {
-        int low = pop8U();
         int high = pop8U();
+        int low = pop8U();
         return ((high << 8) | low) & 0xFFFF;
     }
 
@@ -263,6 +776,7 @@ public class CPU6809 {
 
     // ADD (ADDA, ADDB)
     private void updateFlagsAdd8(int a, int b, int result) {
+        if (lazyFlags) { lazy(LAZY_ADD8, a, b, result); return; }
         int r = result & 0xFF;
 
         setFlag(FLAG_C, result > 0xFF);
@@ -274,6 +788,7 @@ public class CPU6809 {
 
     // SUB 8 bits (SUBA, SUBB)
     private void updateFlagsSub8(int a, int b, int result) {
+        if (lazyFlags) { lazy(LAZY_SUB8, a, b, result); return; }
         int r = result & 0xFF;
         setFlag(FLAG_C, (result & 0x100) != 0); // borrow
         setFlag(FLAG_Z, r == 0);
@@ -284,6 +799,7 @@ public class CPU6809 {
 
     // LOGIC (AND, OR, EOR)
     private void updateFlagsLogic(int r) {
+        if (lazyFlags) { lazy(LAZY_LD8, 0, 0, r); return; }
         r &= 0xFF;
         setFlag(FLAG_Z, r == 0);
         setFlag(FLAG_N, (r & 0x80) != 0);
@@ -293,6 +809,7 @@ public class CPU6809 {
 
     // INC
     private void updateFlagsInc(int r) {
+        if (lazyFlags) { lazy(LAZY_INC, 0, 0, r); return; }
         r &= 0xFF;
         setFlag(FLAG_Z, r == 0);
         setFlag(FLAG_N, (r & 0x80) != 0);
@@ -301,6 +818,7 @@ public class CPU6809 {
 
     // DEC
     private void updateFlagsDec(int r) {
+        if (lazyFlags) { lazy(LAZY_DEC, 0, 0, r); return; }
         r &= 0xFF;
         setFlag(FLAG_Z, r == 0);
         setFlag(FLAG_N, (r & 0x80) != 0);
@@ -309,14 +827,141 @@ public class CPU6809 {
 
     // CLR
     private void updateFlagsCLR() {
+        if (lazyFlags) { lazy(LAZY_CLR, 0, 0, 0); return; }
         setFlag(FLAG_Z, true);
         setFlag(FLAG_N, false);
         setFlag(FLAG_V, false);
         setFlag(FLAG_C, false);
     }
 
+    // SUB 16 bits (CMPD, CMPX, CMPY, CMPU, CMPS)
+    private void updateFlagsSub16(int a, int b, int result) {
+        if (lazyFlags) { lazy(LAZY_SUB16, a, b, result); return; }
+        int r = result & 0xFFFF;
+        setFlag(FLAG_C, (result & 0x10000) != 0);
+        setFlag(FLAG_Z, r == 0);
+        setFlag(FLAG_N, (r & 0x8000) != 0);
+        setFlag(FLAG_V, (((a ^ b) & (a ^ r)) & 0x8000) != 0);
+    }
+
+    private void compare16(int a, int v) {
+        updateFlagsSub16(a, v, a - v);
+    }
+
+    // Interruptions logicielles : tout l'état est empilé (E=1) puis
+    // PC est chargé depuis le vecteur ; SWI masque aussi IRQ et FIRQ
+    private void softwareInterrupt(int vector, boolean maskIF) {
+        setFlag(FLAG_E, true);
+        pushRegsS(0xFF);
+        if (maskIF) {
+            setFlag(FLAG_I, true);
+            setFlag(FLAG_F, true);
+        }
+        PC = readWord(vector);
+    }
+
+    // RTI : E indique si tout l'état ou seulement CC/PC a été empilé
+    private void returnFromInterrupt() {
+        pullRegsS(0x01);
+        if ((CCR & FLAG_E) != 0) {
+            pullRegsS(0xFE);
+            cycles += timing.fullRti;
+        } else {
+            pullRegsS(0x80);
+        }
+    }
+
+    // Interruptions matérielles, prises entre deux instructions par ordre
+    // de priorité NMI > FIRQ > IRQ. SYNC se termine sur toute ligne active,
+    // même masquée (reprise à l'instruction suivante)
+    private void serviceInterrupts() {
+        if (nmiPending) {
+            nmiPending = false;
+            hardwareInterrupt(0xFFFC, true, FLAG_I | FLAG_F);
+        } else if (firqLines != 0 && (CCR & FLAG_F) == 0) {
+            hardwareInterrupt(0xFFF6, false, FLAG_I | FLAG_F);
+        } else if (irqLines != 0 && (CCR & FLAG_I) == 0) {
+            hardwareInterrupt(0xFFF8, true, FLAG_I);
+        } else if (waitState == WAIT_SYNC && (irqLines | firqLines) != 0) {
+            waitState = RUNNING;
+        }
+    }
+
+    // entire : tout l'état (E=1) ou seulement PC et CC (FIRQ, E=0).
+    // Après CWAI l'état complet est déjà sur la pile
+    private void hardwareInterrupt(int vector, boolean entire, int mask) {
+        if (waitState == WAIT_CWAI) {
+            cycles += CWAI_ENTRY_CYCLES;
+        } else {
+            setFlag(FLAG_E, entire);
+            pushRegsS(entire ? 0xFF : 0x81);
+            cycles += entire ? ENTRY_CYCLES : FIRQ_ENTRY_CYCLES;
+        }
+        waitState = RUNNING;
+        CCR |= mask;
+        PC = readWord(vector);
+    }
+
+    // CWAI : CC &= masque, tout l'état empilé, puis attente d'interruption
+    private void cwai(int mask) {
+        setCCR(getCCR() & mask);
+        setFlag(FLAG_E, true);
+        pushRegsS(0xFF);
+        waitState = WAIT_CWAI;
+        checkpoint = Long.MIN_VALUE;
+    }
+
+    private void sync() {
+        waitState = WAIT_SYNC;
+        checkpoint = Long.MIN_VALUE;
+    }
+
+    // Prochain point de contrôle après traitement ; forcé tant que le CPU
+    // attend (aucune instruction ne doit s'exécuter)
+    private void updateCheckpoint() {
+        long next = events.nextCycle();
+        if (nmiPending || waitState != RUNNING
+                || (firqLines != 0 && (CCR & FLAG_F) == 0)
+                || (irqLines != 0 && (CCR & FLAG_I) == 0)) {
+            next = Long.MIN_VALUE;
+        }
+        checkpoint = next;
+        // relu après l'écriture : une demande d'un autre thread n'est pas perdue
+        if (stopRequested || halted) checkpoint = Long.MIN_VALUE;
+    }
+
+    // Événements dus puis interruptions
+    private void serviceCheckpoint() {
+        events.runDue(cycles);
+        serviceInterrupts();
+        updateCheckpoint();
+    }
+
+    // Pas à pas : traite le point de contrôle ; si le CPU attend ou est
+    // arrêté (HALT), avance jusqu'au prochain événement et renvoie false
+    private boolean serviceBeforeStep() {
+        if (halted) {
+            // ni instruction ni interruption ; un événement peut relâcher HALT
+            events.runDue(cycles);
+            if (halted) {
+                skipToNextEvent();
+                return false;
+            }
+        }
+        if (cycles >= checkpoint) serviceCheckpoint();
+        if (waitState == RUNNING) return true;
+        skipToNextEvent();
+        return false;
+    }
+
+    private void skipToNextEvent() {
+        long next = events.nextCycle();
+        if (next != Long.MAX_VALUE && next > cycles) cycles = next;
+    }
+
     // NEG
     private void updateFlagsNEG(int value, int r) {
+        if (lazyFlags) { lazy(LAZY_NEG, value, 0, r); return; }
         r &= 0xFF;
         setFlag(FLAG_Z, r == 0);
         setFlag(FLAG_N, (r & 0x80) != 0);
@@ -325,13 +970,16 @@ public class CPU6809 {
     }
 
     // tableau d'instructions
-    private void buildInstructionTable() {
+    private static Instruction[] buildInstructionTable() {
+        Instruction[] opcodes = new Instruction[3 * PAGE_SIZE];
         Instruction.AddressingMode IM8  = Instruction.AddressingMode.IMMEDIATE8;
         Instruction.AddressingMode IM16 = Instruction.AddressingMode.IMMEDIATE16;
         Instruction.AddressingMode DIR  = Instruction.AddressingMode.DIRECT;
         Instruction.AddressingMode IDX  = Instruction.AddressingMode.INDEXED;
         Instruction.AddressingMode EXT  = Instruction.AddressingMode.EXTENDED;
         Instruction.AddressingMode INH  = Instruction.AddressingMode.INHERENT;
+        Instruction.AddressingMode REL8  = Instruction.AddressingMode.RELATIVE8;
+        Instruction.AddressingMode REL16 = Instruction.AddressingMode.RELATIVE16;
 
 
         // --- LDA ---
@@ -409,7 +1057,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0x9E] = new Instruction("LDX", 0x9E, 2, 4, DIR,
+        opcodes[0x9E] = new Instruction("LDX", 0x9E, 2, 5, DIR,
                 cpu -> {
                     int addr = cpu.directAddress();
                     cpu.setX(cpu.readWord(addr));
@@ -417,7 +1065,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xAE] = new Instruction("LDX", 0xAE, 2, 4, IDX,
+        opcodes[0xAE] = new Instruction("LDX", 0xAE, 2, 5, IDX,
                 cpu -> {
                     int addr = cpu.indexedAddress();
                     cpu.setX(cpu.readWord(addr));
@@ -425,7 +1073,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xBE] = new Instruction("LDX", 0xBE, 3, 5, EXT,
+        opcodes[0xBE] = new Instruction("LDX", 0xBE, 3, 6, EXT,
                 cpu -> {
                     int addr = cpu.extendedAddress();
                     cpu.setX(cpu.readWord(addr));
@@ -442,7 +1090,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xDE] = new Instruction("LDU", 0xDE, 2, 4, DIR,
+        opcodes[0xDE] = new Instruction("LDU", 0xDE, 2, 5, DIR,
                 cpu -> {
                     int addr = cpu.directAddress();
                     cpu.setU(cpu.readWord(addr));
@@ -450,7 +1098,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xEE] = new Instruction("LDU", 0xEE, 2, 4, IDX,
+        opcodes[0xEE] = new Instruction("LDU", 0xEE, 2, 5, IDX,
                 cpu -> {
                     int addr = cpu.indexedAddress();
                     cpu.setU(cpu.readWord(addr));
@@ -458,7 +1106,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xFE] = new Instruction("LDU", 0xFE, 3, 5, EXT,
+        opcodes[0xFE] = new Instruction("LDU", 0xFE, 3, 6, EXT,
                 cpu -> {
                     int addr = cpu.extendedAddress();
                     cpu.setU(cpu.readWord(addr));
@@ -517,7 +1165,7 @@ public class CPU6809 {
                 });
 
         // --- STX ---
-        opcodes[0x9F] = new Instruction("STX", 0x9F, 2, 4, DIR,
+        opcodes[0x9F] = new Instruction("STX", 0x9F, 2, 5, DIR,
                 cpu -> {
                     int addr = cpu.directAddress();
                     cpu.writeWord(addr, cpu.getX());
@@ -525,7 +1173,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xAF] = new Instruction("STX", 0xAF, 2, 4, IDX,
+        opcodes[0xAF] = new Instruction("STX", 0xAF, 2, 5, IDX,
                 cpu -> {
                     int addr = cpu.indexedAddress();
                     cpu.writeWord(addr, cpu.getX());
@@ -533,7 +1181,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xBF] = new Instruction("STX", 0xBF, 3, 5, EXT,
+        opcodes[0xBF] = new Instruction("STX", 0xBF, 3, 6, EXT,
                 cpu -> {
                     int addr = cpu.extendedAddress();
                     cpu.writeWord(addr, cpu.getX());
@@ -542,7 +1190,7 @@ public class CPU6809 {
                 });
 
         // --- STU ---
-        opcodes[0xDF] = new Instruction("STU", 0xDF, 2, 4, DIR,
+        opcodes[0xDF] = new Instruction("STU", 0xDF, 2, 5, DIR,
                 cpu -> {
                     int addr = cpu.directAddress();
                     cpu.writeWord(addr, cpu.getU());
@@ -550,7 +1198,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xEF] = new Instruction("STU", 0xEF, 2, 4, IDX,
+        opcodes[0xEF] = new Instruction("STU", 0xEF, 2, 5, IDX,
                 cpu -> {
                     int addr = cpu.indexedAddress();
                     cpu.writeWord(addr, cpu.getU());
@@ -558,7 +1206,7 @@ public class CPU6809 {
                     cpu.clearV();
                 });
 
-        opcodes[0xFF] = new Instruction("STU", 0xFF, 3, 5, EXT,
+        opcodes[0xFF] = new Instruction("STU", 0xFF, 3, 6, EXT,
                 cpu -> {
                     int addr = cpu.extendedAddress();
                     cpu.writeWord(addr, cpu.getU());
@@ -1017,7 +1665,7 @@ public class CPU6809 {
      //JUMP
 
       
-        opcodes[0x7E] = new Instruction("JMP", 0x7E, 3, 3, EXT,
+        opcodes[0x7E] = new Instruction("JMP", 0x7E, 3, 4, EXT,
                 cpu -> {
                     int addr = cpu.extendedAddress();
                     cpu.setPC(addr);
@@ -1033,7 +1681,7 @@ public class CPU6809 {
         	        cpu.setPC(addr);
         	    });
 //JSR
-        opcodes[0xBD] = new Instruction("JSR", 0xBD, 3, 7, EXT,
+        opcodes[0xBD] = new Instruction("JSR", 0xBD, 3, 8, EXT,
                 cpu -> {
                     int addr = cpu.extendedAddress();
                     cpu.push16S(cpu.getPC());
@@ -1066,6 +1714,7 @@ public class CPU6809 {
         opcodes[0x34] = new Instruction("PSHS", 0x34, 2, 5, IM8,
                 cpu -> {
                     int mask = cpu.imm8();
+                    cpu.cycles += cpu.timing.stack[mask];
                     if ((mask & 0x80) != 0) cpu.push16S(cpu.getPC());
                     if ((mask & 0x40) != 0) cpu.push16S(cpu.getU());
                     if ((mask & 0x20) != 0) cpu.push16S(cpu.getY());
@@ -1080,6 +1729,7 @@ public class CPU6809 {
         opcodes[0x35] = new Instruction("PULS", 0x35, 2, 5, IM8,
                 cpu -> {
                     int mask = cpu.imm8();
+                    cpu.cycles += cpu.timing.stack[mask];
                     if ((mask & 0x01) != 0) cpu.setCCR(cpu.pop8S());
                     if ((mask & 0x02) != 0) cpu.setA(cpu.pop8S());
                     if ((mask & 0x04) != 0) cpu.setB(cpu.pop8S());
@@ -1094,6 +1744,7 @@ public class CPU6809 {
         opcodes[0x36] = new Instruction("PSHU", 0x36, 2, 5, IM8,
                 cpu -> {
                     int mask = cpu.imm8();
+                    cpu.cycles += cpu.timing.stack[mask];
                     if ((mask & 0x80) != 0) cpu.push16U(cpu.getPC());
                     if ((mask & 0x40) != 0) cpu.push16U(cpu.getS());
                     if ((mask & 0x20) != 0) cpu.push16U(cpu.getY());
@@ -1108,6 +1759,7 @@ public class CPU6809 {
         opcodes[0x37] = new Instruction("PULU", 0x37, 2, 5, IM8,
                 cpu -> {
                     int mask = cpu.imm8();
+                    cpu.cycles += cpu.timing.stack[mask];
                     if ((mask & 0x01) != 0) cpu.setCCR(cpu.pop8U());
                     if ((mask & 0x02) != 0) cpu.setA(cpu.pop8U());
                     if ((mask & 0x04) != 0) cpu.setB(cpu.pop8U());
@@ -1120,19 +1772,788 @@ public class CPU6809 {
 
        
 
+        // --- Branches courtes Bcc et longues LBcc (page 2) ---
+        String[] branches = {
+                "BRA", "BRN", "BHI", "BLS", "BCC", "BCS", "BNE", "BEQ",
+                "BVC", "BVS", "BPL", "BMI", "BGE", "BLT", "BGT", "BLE"
+        };
+        for (int c = 0; c < 16; c++) {
+            final int cond = c;
+            opcodes[0x20 + c] = new Instruction(branches[c], 0x20 + c, 2, 3, REL8,
+                    cpu -> {
+                        int target = cpu.relative8();
+                        if (cpu.branchCondition(cond)) cpu.setPC(target);
+                    });
+            if (c == 0) continue; // LBRA est en page 1 ($16)
+            opcodes[P2 | (0x20 + c)] = new Instruction("L" + branches[c], 0x1020 + c, 4, 5, REL16,
+                    cpu -> {
+                        int target = cpu.relative16();
+                        if (cpu.branchCondition(cond)) {
+                            cpu.setPC(target);
+                            cpu.cycles += cpu.timing.longBranch;
+                        }
+                    });
+        }
+
+        opcodes[0x16] = new Instruction("LBRA", 0x16, 3, 5, REL16,
+                cpu -> cpu.setPC(cpu.relative16()));
+
+        // BSR / LBSR
+        opcodes[0x8D] = new Instruction("BSR", 0x8D, 2, 7, REL8,
+                cpu -> {
+                    int target = cpu.relative8();
+                    cpu.push16S(cpu.getPC());
+                    cpu.setPC(target);
+                });
+        opcodes[0x17] = new Instruction("LBSR", 0x17, 3, 9, REL16,
+                cpu -> {
+                    int target = cpu.relative16();
+                    cpu.push16S(cpu.getPC());
+                    cpu.setPC(target);
+                });
+
+        // --- SWI / SWI2 / SWI3 / RTI ---
+        opcodes[0x3F] = new Instruction("SWI", 0x3F, 1, 19, INH,
+                cpu -> cpu.softwareInterrupt(0xFFFA, true));
+        opcodes[P2 | 0x3F] = new Instruction("SWI2", 0x103F, 2, 20, INH,
+                cpu -> cpu.softwareInterrupt(0xFFF4, false));
+        opcodes[P3 | 0x3F] = new Instruction("SWI3", 0x113F, 2, 20, INH,
+                cpu -> cpu.softwareInterrupt(0xFFF2, false));
+        opcodes[0x3B] = new Instruction("RTI", 0x3B, 1, 6, INH,
+                cpu -> cpu.returnFromInterrupt());
+
+        // --- CWAI / SYNC / ANDCC / ORCC ---
+        opcodes[0x3C] = new Instruction("CWAI", 0x3C, 2, 20, IM8,
+                cpu -> cpu.cwai(cpu.imm8()));
+        opcodes[0x13] = new Instruction("SYNC", 0x13, 1, 4, INH,
+                cpu -> cpu.sync());
+        opcodes[0x1C] = new Instruction("ANDCC", 0x1C, 2, 3, IM8,
+                cpu -> cpu.setCCR(cpu.getCCR() & cpu.imm8()));
+        opcodes[0x1A] = new Instruction("ORCC", 0x1A, 2, 3, IM8,
+                cpu -> cpu.setCCR(cpu.getCCR() | cpu.imm8()));
+
+        // --- LDY (page 2) ---
+        opcodes[P2 | 0x8E] = new Instruction("LDY", 0x108E, 4, 4, IM16,
+                cpu -> {
+                    cpu.setY(cpu.imm16());
+                    cpu.updateNZ16(cpu.getY());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0x9E] = new Instruction("LDY", 0x109E, 3, 6, DIR,
+                cpu -> {
+                    cpu.setY(cpu.readWord(cpu.directAddress()));
+                    cpu.updateNZ16(cpu.getY());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xAE] = new Instruction("LDY", 0x10AE, 3, 6, IDX,
+                cpu -> {
+                    cpu.setY(cpu.readWord(cpu.indexedAddress()));
+                    cpu.updateNZ16(cpu.getY());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xBE] = new Instruction("LDY", 0x10BE, 4, 7, EXT,
+                cpu -> {
+                    cpu.setY(cpu.readWord(cpu.extendedAddress()));
+                    cpu.updateNZ16(cpu.getY());
+                    cpu.clearV();
+                });
+
+        // --- LDS (page 2) ---
+        opcodes[P2 | 0xCE] = new Instruction("LDS", 0x10CE, 4, 4, IM16,
+                cpu -> {
+                    cpu.setS(cpu.imm16());
+                    cpu.updateNZ16(cpu.getS());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xDE] = new Instruction("LDS", 0x10DE, 3, 6, DIR,
+                cpu -> {
+                    cpu.setS(cpu.readWord(cpu.directAddress()));
+                    cpu.updateNZ16(cpu.getS());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xEE] = new Instruction("LDS", 0x10EE, 3, 6, IDX,
+                cpu -> {
+                    cpu.setS(cpu.readWord(cpu.indexedAddress()));
+                    cpu.updateNZ16(cpu.getS());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xFE] = new Instruction("LDS", 0x10FE, 4, 7, EXT,
+                cpu -> {
+                    cpu.setS(cpu.readWord(cpu.extendedAddress()));
+                    cpu.updateNZ16(cpu.getS());
+                    cpu.clearV();
+                });
+
+        // --- STY (page 2) ---
+        opcodes[P2 | 0x9F] = new Instruction("STY", 0x109F, 3, 6, DIR,
+                cpu -> {
+                    cpu.writeWord(cpu.directAddress(), cpu.getY());
+                    cpu.updateNZ16(cpu.getY());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xAF] = new Instruction("STY", 0x10AF, 3, 6, IDX,
+                cpu -> {
+                    cpu.writeWord(cpu.indexedAddress(), cpu.getY());
+                    cpu.updateNZ16(cpu.getY());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xBF] = new Instruction("STY", 0x10BF, 4, 7, EXT,
+                cpu -> {
+                    cpu.writeWord(cpu.extendedAddress(), cpu.getY());
+                    cpu.updateNZ16(cpu.getY());
+                    cpu.clearV();
+                });
+
+        // --- STS (page 2) ---
+        opcodes[P2 | 0xDF] = new Instruction("STS", 0x10DF, 3, 6, DIR,
+                cpu -> {
+                    cpu.writeWord(cpu.directAddress(), cpu.getS());
+                    cpu.updateNZ16(cpu.getS());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xEF] = new Instruction("STS", 0x10EF, 3, 6, IDX,
+                cpu -> {
+                    cpu.writeWord(cpu.indexedAddress(), cpu.getS());
+                    cpu.updateNZ16(cpu.getS());
+                    cpu.clearV();
+                });
+        opcodes[P2 | 0xFF] = new Instruction("STS", 0x10FF, 4, 7, EXT,
+                cpu -> {
+                    cpu.writeWord(cpu.extendedAddress(), cpu.getS());
+                    cpu.updateNZ16(cpu.getS());
+                    cpu.clearV();
+                });
+
+        // --- CMPD / CMPY (page 2), CMPU / CMPS (page 3) ---
+        opcodes[P2 | 0x83] = new Instruction("CMPD", 0x1083, 4, 5, IM16,
+                cpu -> {
+                    int v = cpu.imm16();
+                    cpu.compare16(cpu.getD(), v);
+                });
+        opcodes[P2 | 0x93] = new Instruction("CMPD", 0x1093, 3, 7, DIR,
+                cpu -> {
+                    int v = cpu.readWord(cpu.directAddress());
+                    cpu.compare16(cpu.getD(), v);
+                });
+        opcodes[P2 | 0xA3] = new Instruction("CMPD", 0x10A3, 3, 7, IDX,
+                cpu -> {
+                    int v = cpu.readWord(cpu.indexedAddress());
+                    cpu.compare16(cpu.getD(), v);
+                });
+        opcodes[P2 | 0xB3] = new Instruction("CMPD", 0x10B3, 4, 8, EXT,
+                cpu -> {
+                    int v = cpu.readWord(cpu.extendedAddress());
+                    cpu.compare16(cpu.getD(), v);
+                });
+
+        opcodes[P2 | 0x8C] = new Instruction("CMPY", 0x108C, 4, 5, IM16,
+                cpu -> {
+                    int v = cpu.imm16();
+                    cpu.compare16(cpu.getY(), v);
+                });
+        opcodes[P2 | 0x9C] = new Instruction("CMPY", 0x109C, 3, 7, DIR,
+                cpu -> {
+                    int v = cpu.readWord(cpu.directAddress());
+                    cpu.compare16(cpu.getY(), v);
+                });
+        opcodes[P2 | 0xAC] = new Instruction("CMPY", 0x10AC, 3, 7, IDX,
+                cpu -> {
+                    int v = cpu.readWord(cpu.indexedAddress());
+                    cpu.compare16(cpu.getY(), v);
+                });
+        opcodes[P2 | 0xBC] = new Instruction("CMPY", 0x10BC, 4, 8, EXT,
+                cpu -> {
+                    int v = cpu.readWord(cpu.extendedAddress());
+                    cpu.compare16(cpu.getY(), v);
+                });
+
+        opcodes[P3 | 0x83] = new Instruction("CMPU", 0x1183, 4, 5, IM16,
+                cpu -> {
+                    int v = cpu.imm16();
+                    cpu.compare16(cpu.getU(), v);
+                });
+        opcodes[P3 | 0x93] = new Instruction("CMPU", 0x1193, 3, 7, DIR,
+                cpu -> {
+                    int v = cpu.readWord(cpu.directAddress());
+                    cpu.compare16(cpu.getU(), v);
+                });
+        opcodes[P3 | 0xA3] = new Instruction("CMPU", 0x11A3, 3, 7, IDX,
+                cpu -> {
+                    int v = cpu.readWord(cpu.indexedAddress());
+                    cpu.compare16(cpu.getU(), v);
+                });
+        opcodes[P3 | 0xB3] = new Instruction("CMPU", 0x11B3, 4, 8, EXT,
+                cpu -> {
+                    int v = cpu.readWord(cpu.extendedAddress());
+                    cpu.compare16(cpu.getU(), v);
+                });
+
+        opcodes[P3 | 0x8C] = new Instruction("CMPS", 0x118C, 4, 5, IM16,
+                cpu -> {
+                    int v = cpu.imm16();
+                    cpu.compare16(cpu.getS(), v);
+                });
+        opcodes[P3 | 0x9C] = new Instruction("CMPS", 0x119C, 3, 7, DIR,
+                cpu -> {
+                    int v = cpu.readWord(cpu.directAddress());
+                    cpu.compare16(cpu.getS(), v);
+                });
+        opcodes[P3 | 0xAC] = new Instruction("CMPS", 0x11AC, 3, 7, IDX,
+                cpu -> {
+                    int v = cpu.readWord(cpu.indexedAddress());
+                    cpu.compare16(cpu.getS(), v);
+                });
+        opcodes[P3 | 0xBC] = new Instruction("CMPS", 0x11BC, 4, 8, EXT,
+                cpu -> {
+                    int v = cpu.readWord(cpu.extendedAddress());
+                    cpu.compare16(cpu.getS(), v);
+                });
+
         opcodes[0x12] = new Instruction("NOP", 0x12, 1, 2, INH,
                 cpu -> { });
+
+        return opcodes;
+    }
+
+
+    // MOTEUR SWITCH
+    // Un seul switch(opcode) dense : l'opérande est résolu d'abord
+    // (valeur immédiate, adresse effective ou cible de branche) puis
+    // l'opération est exécutée. Les opcodes préfixés sont des index de la
+    // table plate (P2 | op, P3 | op). Mêmes effets et mêmes cycles que la
+    // table d'Instruction.
+
+    private static void buildSwitchTables() {
+        for (int op = 0; op < OPCODES.length; op++) {
+            Instruction instr = OPCODES[op];
+            if (instr == null) {
+                OPERAND_MODES[op] = OP_NONE;
+                continue;
+            }
+            switch (instr.getMode()) {
+                case IMMEDIATE8:  OPERAND_MODES[op] = OP_IMM8;  break;
+                case IMMEDIATE16: OPERAND_MODES[op] = OP_IMM16; break;
+                case DIRECT:      OPERAND_MODES[op] = OP_DIR;   break;
+                case INDEXED:     OPERAND_MODES[op] = OP_IDX;   break;
+                case EXTENDED:    OPERAND_MODES[op] = OP_EXT;   break;
+                case RELATIVE8:   OPERAND_MODES[op] = OP_REL8;  break;
+                case RELATIVE16:  OPERAND_MODES[op] = OP_REL16; break;
+                default:          OPERAND_MODES[op] = OP_INH;
+            }
+            CYCLE_TABLE[op] = instr.getCycles();
+        }
+    }
+
+    private int fetchOperand(int mode) {
+        switch (mode) {
+            case OP_IMM8:  return fetch8();
+            case OP_IMM16: return fetch16();
+            case OP_DIR:   return directAddress();
+            case OP_IDX:   return indexedAddress();
+            case OP_EXT:   return fetch16();
+            case OP_REL8:  return relative8();
+            case OP_REL16: return relative16();
+            default:       return 0;
+        }
+    }
+
+    private void stepSwitch() {
+        int start = PC;
+        int opcode = fetchOpcode();
+        int mode = OPERAND_MODES[opcode];
+
+        if (mode == OP_NONE) {
+            throw new IllegalStateException(
+                    String.format("Opcode 0x%02X non implémenté à PC=0x%04X", fullOpcode(opcode), start)
+            );
+        }
+
+        executeSwitch(opcode, fetchOperand(mode));
+        cycles += CYCLE_TABLE[opcode];
+    }
+
+    // op = valeur immédiate ou adresse effective selon le mode
+    private void executeSwitch(int opcode, int op) {
+        switch (opcode) {
+            // LDA / LDB
+            case 0x86:
+                A = op; updateNZ8(A); clearV(); break;
+            case 0x96: case 0xA6: case 0xB6:
+                A = readByte(op); updateNZ8(A); clearV(); break;
+            case 0xC6:
+                B = op; updateNZ8(B); clearV(); break;
+            case 0xD6: case 0xE6: case 0xF6:
+                B = readByte(op); updateNZ8(B); clearV(); break;
+
+            // LDX / LDU
+            case 0x8E:
+                X = op; updateNZ16(X); clearV(); break;
+            case 0x9E: case 0xAE: case 0xBE:
+                X = readWord(op); updateNZ16(X); clearV(); break;
+            case 0xCE:
+                U = op; updateNZ16(U); clearV(); break;
+            case 0xDE: case 0xEE: case 0xFE:
+                U = readWord(op); updateNZ16(U); clearV(); break;
+
+            // STA / STB / STX / STU
+            case 0x97: case 0xA7: case 0xB7:
+                writeByte(op, A); updateNZ8(A); clearV(); break;
+            case 0xD7: case 0xE7: case 0xF7:
+                writeByte(op, B); updateNZ8(B); clearV(); break;
+            case 0x9F: case 0xAF: case 0xBF:
+                writeWord(op, X); updateNZ16(X); clearV(); break;
+            case 0xDF: case 0xEF: case 0xFF:
+                writeWord(op, U); updateNZ16(U); clearV(); break;
+
+            // ADDA / ADDB
+            case 0x8B:
+                A = add8(A, op); break;
+            case 0x9B: case 0xAB: case 0xBB:
+                A = add8(A, readByte(op)); break;
+            case 0xCB:
+                B = add8(B, op); break;
+            case 0xDB: case 0xEB: case 0xFB:
+                B = add8(B, readByte(op)); break;
+
+            // SUBA / SUBB
+            case 0x80:
+                A = sub8(A, op); break;
+            case 0x90: case 0xA0: case 0xB0:
+                A = sub8(A, readByte(op)); break;
+            case 0xC0:
+                B = sub8(B, op); break;
+            case 0xD0: case 0xE0: case 0xF0:
+                B = sub8(B, readByte(op)); break;
+
+            // ANDA / ANDB
+            case 0x84:
+                A &= op; updateFlagsLogic(A); break;
+            case 0x94: case 0xA4: case 0xB4:
+                A &= readByte(op); updateFlagsLogic(A); break;
+            case 0xC4:
+                B &= op; updateFlagsLogic(B); break;
+            case 0xD4: case 0xE4: case 0xF4:
+                B &= readByte(op); updateFlagsLogic(B); break;
+
+            // ORA / ORB
+            case 0x8A:
+                A |= op; updateFlagsLogic(A); break;
+            case 0x9A: case 0xAA:
+                A |= readByte(op); updateFlagsLogic(A); break;
+            case 0xCA:
+                B |= op; updateFlagsLogic(B); break;
+            case 0xDA: case 0xEA: case 0xFA:
+                B |= readByte(op); updateFlagsLogic(B); break;
+
+            // EORA / EORB
+            case 0x88:
+                A ^= op; updateFlagsLogic(A); break;
+            case 0xC8:
+                B ^= op; updateFlagsLogic(B); break;
+            case 0xD8: case 0xE8: case 0xF8:
+                B ^= readByte(op); updateFlagsLogic(B); break;
+
+            // CLRA / CLRB / CLR
+            case 0x4F:
+                A = 0; updateFlagsCLR(); break;
+            case 0x5F:
+                B = 0; updateFlagsCLR(); break;
+            case 0x0F: case 0x6F: case 0x7F:
+                writeByte(op, 0); updateFlagsCLR(); break;
+
+            // INC / DEC / NEG mémoire
+            case 0x0C: {
+                int r = (readByte(op) + 1) & 0xFF;
+                writeByte(op, r);
+                updateFlagsInc(r);
+                break;
+            }
+            case 0x0A: case 0x6A: case 0x7A: {
+                int r = (readByte(op) - 1) & 0xFF;
+                writeByte(op, r);
+                updateFlagsDec(r);
+                break;
+            }
+            case 0x00: case 0x60: case 0x70: {
+                int v = readByte(op);
+                int r = (-v) & 0xFF;
+                writeByte(op, r);
+                updateFlagsNEG(v, r);
+                break;
+            }
+
+            // INCA / INCB / DECA / DECB
+            case 0x4C:
+                A = (A + 1) & 0xFF; updateFlagsInc(A); break;
+            case 0x5C:
+                B = (B + 1) & 0xFF; updateFlagsInc(B); break;
+            case 0x4A:
+                A = (A - 1) & 0xFF; updateFlagsDec(A); break;
+            case 0x5A:
+                B = (B - 1) & 0xFF; updateFlagsDec(B); break;
+
+            // JMP / JSR / RTS
+            case 0x0E: case 0x6E: case 0x7E:
+                PC = op; break;
+            case 0x9D: case 0xAD: case 0xBD:
+                push16S(PC); PC = op; break;
+            case 0x39:
+                PC = pop16S(); break;
+
+            // PSHS / PULS / PSHU / PULU
+            case 0x34:
+                pushRegsS(op); cycles += timing.stack[op]; break;
+            case 0x35:
+                pullRegsS(op); cycles += timing.stack[op]; break;
+            case 0x36:
+                pushRegsU(op); cycles += timing.stack[op]; break;
+            case 0x37:
+                pullRegsU(op); cycles += timing.stack[op]; break;
+
+            // LDY / LDS (page 2)
+            case P2 | 0x8E:
+                Y = op; updateNZ16(Y); clearV(); break;
+            case P2 | 0x9E: case P2 | 0xAE: case P2 | 0xBE:
+                Y = readWord(op); updateNZ16(Y); clearV(); break;
+            case P2 | 0xCE:
+                S = op; nmiArmed = true; updateNZ16(S); clearV(); break;
+            case P2 | 0xDE: case P2 | 0xEE: case P2 | 0xFE:
+                S = readWord(op); nmiArmed = true; updateNZ16(S); clearV(); break;
+
+            // STY / STS (page 2)
+            case P2 | 0x9F: case P2 | 0xAF: case P2 | 0xBF:
+                writeWord(op, Y); updateNZ16(Y); clearV(); break;
+            case P2 | 0xDF: case P2 | 0xEF: case P2 | 0xFF:
+                writeWord(op, S); updateNZ16(S); clearV(); break;
+
+            // CMPD / CMPY (page 2), CMPU / CMPS (page 3)
+            case P2 | 0x83:
+                compare16(getD(), op); break;
+            case P2 | 0x93: case P2 | 0xA3: case P2 | 0xB3:
+                compare16(getD(), readWord(op)); break;
+            case P2 | 0x8C:
+                compare16(Y, op); break;
+            case P2 | 0x9C: case P2 | 0xAC: case P2 | 0xBC:
+                compare16(Y, readWord(op)); break;
+            case P3 | 0x83:
+                compare16(U, op); break;
+            case P3 | 0x93: case P3 | 0xA3: case P3 | 0xB3:
+                compare16(U, readWord(op)); break;
+            case P3 | 0x8C:
+                compare16(S, op); break;
+            case P3 | 0x9C: case P3 | 0xAC: case P3 | 0xBC:
+                compare16(S, readWord(op)); break;
+
+            // Bcc / LBcc : op = adresse cible
+            case 0x20: case 0x21: case 0x22: case 0x23:
+            case 0x24: case 0x25: case 0x26: case 0x27:
+            case 0x28: case 0x29: case 0x2A: case 0x2B:
+            case 0x2C: case 0x2D: case 0x2E: case 0x2F:
+                if (branchCondition(opcode & 0x0F)) PC = op;
+                break;
+            case P2 | 0x21: case P2 | 0x22: case P2 | 0x23:
+            case P2 | 0x24: case P2 | 0x25: case P2 | 0x26: case P2 | 0x27:
+            case P2 | 0x28: case P2 | 0x29: case P2 | 0x2A: case P2 | 0x2B:
+            case P2 | 0x2C: case P2 | 0x2D: case P2 | 0x2E: case P2 | 0x2F:
+                if (branchCondition(opcode & 0x0F)) {
+                    PC = op;
+                    cycles += timing.longBranch;
+                }
+                break;
+
+            // LBRA / BSR / LBSR
+            case 0x16:
+                PC = op; break;
+            case 0x8D: case 0x17:
+                push16S(PC); PC = op; break;
+
+            // SWI / SWI2 / SWI3 / RTI
+            case 0x3F:
+                softwareInterrupt(0xFFFA, true); break;
+            case P2 | 0x3F:
+                softwareInterrupt(0xFFF4, false); break;
+            case P3 | 0x3F:
+                softwareInterrupt(0xFFF2, false); break;
+            case 0x3B:
+                returnFromInterrupt(); break;
+
+            // CWAI / SYNC / ANDCC / ORCC
+            case 0x3C:
+                cwai(op); break;
+            case 0x13:
+                sync(); break;
+            case 0x1C:
+                setCCR(getCCR() & op); break;
+            case 0x1A:
+                setCCR(getCCR() | op); break;
+
+            // NOP
+            case 0x12:
+                break;
+
+            default:
+                throw new IllegalStateException(
+                        String.format("Opcode 0x%02X non implémenté à PC=0x%04X", fullOpcode(opcode), (PC - 1) & 0xFFFF)
+                );
+        }
+    }
+
+    private int add8(int a, int v) {
+        int res = a + v;
+        updateFlagsAdd8(a, v, res);
+        return res & 0xFF;
+    }
+
+    private int sub8(int a, int v) {
+        int res = a - v;
+        updateFlagsSub8(a, v, res);
+        return res & 0xFF;
+    }
+
+    private void pushRegsS(int mask) {
+        if ((mask & 0x80) != 0) push16S(PC);
+        if ((mask & 0x40) != 0) push16S(U);
+        if ((mask & 0x20) != 0) push16S(Y);
+        if ((mask & 0x10) != 0) push16S(X);
+        if ((mask & 0x08) != 0) push8S(DP);
+        if ((mask & 0x04) != 0) push8S(B);
+        if ((mask & 0x02) != 0) push8S(A);
+        if ((mask & 0x01) != 0) push8S(getCCR());
+    }
+
+    private void pullRegsS(int mask) {
+        if ((mask & 0x01) != 0) setCCR(pop8S());
+        if ((mask & 0x02) != 0) A = pop8S();
+        if ((mask & 0x04) != 0) B = pop8S();
+        if ((mask & 0x08) != 0) DP = pop8S();
+        if ((mask & 0x10) != 0) X = pop16S();
+        if ((mask & 0x20) != 0) Y = pop16S();
+        if ((mask & 0x40) != 0) U = pop16S();
+        if ((mask & 0x80) != 0) PC = pop16S();
+    }
+
+    private void pushRegsU(int mask) {
+        if ((mask & 0x80) != 0) push16U(PC);
+        if ((mask & 0x40) != 0) push16U(S);
+        if ((mask & 0x20) != 0) push16U(Y);
+        if ((mask & 0x10) != 0) push16U(X);
+        if ((mask & 0x08) != 0) push8U(DP);
+        if ((mask & 0x04) != 0) push8U(B);
+        if ((mask & 0x02) != 0) push8U(A);
+        if ((mask & 0x01) != 0) push8U(getCCR());
+    }
+
+    private void pullRegsU(int mask) {
+        if ((mask & 0x01) != 0) setCCR(pop8U());
+        if ((mask & 0x02) != 0) A = pop8U();
+        if ((mask & 0x04) != 0) B = pop8U();
+        if ((mask & 0x08) != 0) DP = pop8U();
+        if ((mask & 0x10) != 0) X = pop16U();
+        if ((mask & 0x20) != 0) Y = pop16U();
+        if ((mask & 0x40) != 0) { S = pop16U(); nmiArmed = true; }
+        if ((mask & 0x80) != 0) PC = pop16U();
+    }
+
+
+    // MOTEUR BLOCK
+    // Décode une suite d'instructions à partir de start, jusqu'au premier
+    // saut (JMP, JSR, RTS, branche, SWI, RTI, PULS/PULU avec PC) ou
+    // instruction non décodable. Les cibles de branche sont pré-calculées.
+    DecodedBlock decodeBlock(int start) {
+        int[] ops = new int[MAX_BLOCK];
+        int[] args = new int[MAX_BLOCK];
+        int[] next = new int[MAX_BLOCK];
+        int count = 0;
+        int total = 0;
+        int cost = 0;
+        boolean writes = false;
+        int pc = start;
+
+        while (count < MAX_BLOCK) {
+            int opcode = memory.peekByte(pc);
+            int p = pc + 1; // premier octet d'opérande
+            if (opcode == Instruction.PAGE2 || opcode == Instruction.PAGE3) {
+                opcode = ((opcode - 0x0F) << 8) | memory.peekByte(p);
+                p++;
+            }
+            int mode = OPERAND_MODES[opcode];
+            int len;
+            int arg;
+
+            switch (mode) {
+                case OP_NONE:
+                    len = -1;
+                    arg = 0;
+                    break;
+                case OP_IMM8:
+                case OP_DIR:
+                    len = 1;
+                    arg = memory.peekByte(p);
+                    break;
+                case OP_IMM16:
+                case OP_EXT:
+                    len = 2;
+                    arg = (memory.peekByte(p) << 8) | memory.peekByte(p + 1);
+                    break;
+                case OP_REL8:
+                    len = 1;
+                    arg = (p + 1 + (byte) memory.peekByte(p)) & 0xFFFF;
+                    break;
+                case OP_REL16:
+                    len = 2;
+                    arg = (p + 2 + (short) ((memory.peekByte(p) << 8) | memory.peekByte(p + 1))) & 0xFFFF;
+                    break;
+                case OP_IDX: {
+                    int post = memory.peekByte(p);
+                    if (!IndexedPostbyte.isLegal(post)) {
+                        len = -1; // postbyte illégal : exécution normale (exception)
+                        arg = 0;
+                        break;
+                    }
+                    switch (IndexedPostbyte.extraBytes(IndexedPostbyte.entry(post))) {
+                        case 1:
+                            len = 2;
+                            arg = (post << 16) | memory.peekByte(p + 1);
+                            break;
+                        case 2:
+                            len = 3;
+                            arg = (post << 16) | (memory.peekByte(p + 1) << 8) | memory.peekByte(p + 2);
+                            break;
+                        default:
+                            len = 1;
+                            arg = post << 16;
+                    }
+                    break;
+                }
+                default:
+                    len = 0;
+                    arg = 0;
+            }
+
+            if (len < 0) break;
+            len += p - pc; // opcode et préfixe éventuel
+            if (pc + len > BLOCK_LIMIT) break;
+
+            pc += len;
+            ops[count] = opcode;
+            args[count] = arg;
+            next[count] = pc;
+            total += CYCLE_TABLE[opcode];
+            cost += timing.instructionCycles(opcode, mode, arg, CYCLE_TABLE);
+            writes |= BlockCompiler.writesMemory(opcode);
+            count++;
+
+            if (endsBlock(opcode, arg)) break;
+        }
+
+        if (count == 0) return null;
+
+        // boucle courte sur elle-même : Bcc / LBcc / LBRA / JMP étendu vers start
+        int last = ops[count - 1];
+        boolean jump = ((last & 0xFF) >= 0x20 && (last & 0xFF) <= 0x2F && last < P3)
+                || last == 0x16 || last == 0x7E;
+        boolean selfLoop = jump && args[count - 1] == start && !writes;
+
+        return new DecodedBlock(start, pc, count,
+                Arrays.copyOf(ops, count),
+                Arrays.copyOf(args, count),
+                Arrays.copyOf(next, count),
+                total, cost, selfLoop);
+    }
+
+    private static boolean endsBlock(int opcode, int arg) {
+        if ((opcode & 0xFF) >= 0x20 && (opcode & 0xFF) <= 0x2F && opcode < P3) {
+            return true;                     // Bcc / LBcc
+        }
+        switch (opcode) {
+            case 0x0E: case 0x6E: case 0x7E: // JMP
+            case 0x9D: case 0xAD: case 0xBD: // JSR
+            case 0x39:                       // RTS
+            case 0x16: case 0x17: case 0x8D: // LBRA / LBSR / BSR
+            case 0x3F: case P2 | 0x3F: case P3 | 0x3F: // SWI / SWI2 / SWI3
+            case 0x3B:                       // RTI
+            case 0x3C: case 0x13:            // CWAI / SYNC
+                return true;
+            case 0x35: case 0x37:            // PULS / PULU PC, ou CC (démasquage)
+                return (arg & 0x81) != 0;
+            default:
+                return false;
+        }
+    }
+
+    private int resolveOperand(int mode, int arg) {
+        switch (mode) {
+            case OP_DIR: return ((DP & 0xFF) << 8) | arg;
+            case OP_IDX: return indexedAddress(arg >>> 16, arg & 0xFFFF);
+            default:     return arg;
+        }
+    }
+
+    // Exécute un bloc décodé ; renvoie false si arrêt sur le prédicat stopAt
+    private boolean executeBlock(DecodedBlock block, long end, IntPredicate stopAt) {
+        final int[] ops = block.opcodes;
+        final int[] args = block.operands;
+        final int[] next = block.nextPCs;
+        final int n = block.count;
+
+        // block.cost : coût sans les extras dynamiques (LBcc prise, RTI),
+        // qui ne portent que sur la dernière instruction. Le bloc ne doit
+        // franchir ni la fin du budget ni le point de contrôle
+        long cost = cycles + block.cost;
+        if (stopAt == null && cost <= end && cost <= checkpoint) {
+            if (tiered) {
+                CompiledBlock compiled = block.compiled;
+                if (compiled != null) {
+                    cycles += compiled.run(this, memory, block);
+                    return true;
+                }
+                if (++block.hits == HOT_THRESHOLD && !block.compileFailed) {
+                    BlockCompiler.submit(block, OPERAND_MODES, CYCLE_TABLE, timing);
+                }
+            }
+
+            // bloc complet : pas de test de budget entre les instructions ;
+            // arrêt si le bloc modifie son propre code ou si un périphérique
+            // avance le point de contrôle (interruption, événement)
+            for (int i = 0; i < n; i++) {
+                int opcode = ops[i];
+                PC = next[i];
+                executeSwitch(opcode, resolveOperand(OPERAND_MODES[opcode], args[i]));
+                cycles += CYCLE_TABLE[opcode];
+                if (!block.valid || cycles >= checkpoint) return true;
+            }
+            return true;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && (cycles >= end || cycles >= checkpoint)) return true;
+            if (stopAt != null && stopAt.test(PC)) return false;
+
+            int opcode = ops[i];
+            PC = next[i];
+            executeSwitch(opcode, resolveOperand(OPERAND_MODES[opcode], args[i]));
+            cycles += CYCLE_TABLE[opcode];
+            if (!block.valid) return true;
+        }
+        return true;
     }
 
     
    //execution
     public  void step() {
-        int opcode = fetch8();
-        Instruction instr = opcodes[opcode & 0xFF];
+        if (!serviceBeforeStep()) return;
+        if (engine != Engine.TABLE) {
+            stepSwitch();
+            return;
+        }
+
+        int start = PC;
+        int opcode = fetchOpcode();
+        Instruction instr = OPCODES[opcode];
 
         if (instr == null) {
             throw new IllegalStateException(
-                    String.format("Opcode 0x%02X non implémenté à PC=0x%04X", opcode, (PC - 1) & 0xFFFF)
+                    String.format("Opcode 0x%02X non implémenté à PC=0x%04X", fullOpcode(opcode), start)
             );
         }
 
@@ -1140,8 +2561,183 @@ public class CPU6809 {
         cycles += instr.getCycles();
     }
   
+    // EXÉCUTION PAR TRANCHES
+    // run(budget) exécute des instructions jusqu'à consommer 'budget' cycles.
+    // runUntil ajoute un prédicat d'arrêt testé sur PC avant chaque instruction.
+    // Un opcode inconnu n'est pas exécuté : PC reste sur l'opcode fautif.
+    // Entre deux instructions, une seule comparaison (cycles >= checkpoint)
+    // couvre événements, interruptions, attente, HALT et demande d'arrêt.
+    public ExitReason run(long budget) {
+        return runUntil(budget, null);
+    }
+
+    public ExitReason runUntil(long budget, IntPredicate stopAt) {
+        final long end = (budget >= Long.MAX_VALUE - cycles) ? Long.MAX_VALUE : cycles + budget;
+        stopRequested = false;
+        idle = false;
+        updateCheckpoint();
+
+        if (engine == Engine.BLOCK || engine == Engine.TIERED) {
+            final BlockCache cache = blockCache;
+
+            while (cycles < end) {
+                if (cycles >= checkpoint) {
+                    ExitReason reason = checkpointReached(end);
+                    if (reason != null) return reason;
+                    continue;
+                }
+
+                DecodedBlock block = cache.get(PC);
+                if (block == null) {
+                    block = decodeBlock(PC);
+                    if (block == null) {
+                        // instruction non décodable en bloc : exécution normale
+                        if (stopAt != null && stopAt.test(PC)) return ExitReason.BREAKPOINT;
+
+                        int start = PC;
+                        int opcode = fetchOpcode();
+                        int mode = OPERAND_MODES[opcode];
+                        if (mode == OP_NONE) {
+                            PC = start;
+                            return ExitReason.ILLEGAL_OPCODE;
+                        }
+
+                        executeSwitch(opcode, fetchOperand(mode));
+                        cycles += CYCLE_TABLE[opcode];
+                        continue;
+                    }
+                    cache.put(block);
+                }
+
+                if (block.selfLoop && (stopAt == null || !breakpointIn(block, stopAt))) {
+                    if (busyLoop(block, end)) return ExitReason.IDLE;
+                    continue;
+                }
+                if (!executeBlock(block, end, stopAt)) return ExitReason.BREAKPOINT;
+            }
+        } else if (engine == Engine.SWITCH) {
+            final int[] modes = OPERAND_MODES;
+            final int[] cyc = CYCLE_TABLE;
+
+            while (cycles < end) {
+                if (cycles >= checkpoint) {
+                    ExitReason reason = checkpointReached(end);
+                    if (reason != null) return reason;
+                    continue;
+                }
+                if (stopAt != null && stopAt.test(PC)) return ExitReason.BREAKPOINT;
+
+                int start = PC;
+                int opcode = fetchOpcode();
+                int mode = modes[opcode];
+                if (mode == OP_NONE) {
+                    PC = start;
+                    return ExitReason.ILLEGAL_OPCODE;
+                }
+
+                executeSwitch(opcode, fetchOperand(mode));
+                cycles += cyc[opcode];
+            }
+        } else {
+            final Instruction[] table = OPCODES;
+
+            while (cycles < end) {
+                if (cycles >= checkpoint) {
+                    ExitReason reason = checkpointReached(end);
+                    if (reason != null) return reason;
+                    continue;
+                }
+                if (stopAt != null && stopAt.test(PC)) return ExitReason.BREAKPOINT;
+
+                int start = PC;
+                Instruction instr = table[fetchOpcode()];
+                if (instr == null) {
+                    PC = start;
+                    return ExitReason.ILLEGAL_OPCODE;
+                }
+
+                instr.execute(this);
+                cycles += instr.getCycles();
+            }
+        }
+
+        return ExitReason.BUDGET_EXHAUSTED;
+    }
+
+    // cycles >= checkpoint : raison de sortie, ou null pour continuer.
+    // Sans instruction à exécuter (HALT, CWAI, SYNC), le temps avance
+    // directement jusqu'au prochain événement, au plus jusqu'à end
+    private ExitReason checkpointReached(long end) {
+        if (stopRequested) return ExitReason.STOP_REQUESTED;
+        if (halted) {
+            // les périphériques continuent ; un événement peut relâcher HALT
+            events.runDue(cycles);
+            if (halted) {
+                long next = events.nextCycle();
+                if (next == Long.MAX_VALUE) return ExitReason.HALTED;
+                cycles = Math.max(cycles, Math.min(end, next));
+                return cycles >= end ? ExitReason.HALTED : null;
+            }
+        }
+        serviceCheckpoint();
+        if (waitState != RUNNING) {
+            long next = events.nextCycle();
+            if (next == Long.MAX_VALUE) {
+                if (end == Long.MAX_VALUE) return ExitReason.IDLE;
+                idle = true;
+            }
+            cycles = Math.max(cycles, Math.min(end, next));
+        }
+        return null;
+    }
+
+    // Attente active : bloc qui reboucle sur lui-même sans écrire. Si une
+    // itération laisse registres et entrées inchangés, sans lire de
+    // périphérique volatil (PIA, compteur, segment partagé...), les suivantes
+    // sont identiques jusqu'au prochain événement : cycles avance d'un
+    // nombre entier d'itérations sans les exécuter. true si rien ne peut
+    // changer (aucun événement, budget illimité)
+    private boolean busyLoop(DecodedBlock block, long end) {
+        long before = cycles;
+        long regs = packRegs();
+        int sp = (S << 16) | U;
+        int io = memory.getIoVersion();
+        int reads = memory.getVolatileReads();
+
+        executeBlock(block, end, null);
+
+        if (PC != block.start || packRegs() != regs || ((S << 16) | U) != sp
+                || memory.getIoVersion() != io || memory.getVolatileReads() != reads) {
+            return false;
+        }
+        long limit = Math.min(end, checkpoint);
+        if (limit == Long.MAX_VALUE) return true;
+        if (checkpoint == Long.MAX_VALUE) idle = true;
+        long period = cycles - before;
+        long skip = (limit - cycles) / period;
+        if (skip > 0) cycles += skip * period;
+        return false;
+    }
+
+    // A B DP CC X Y sur 64 bits
+    private long packRegs() {
+        return ((long) (A & 0xFF) << 56) | ((long) (B & 0xFF) << 48)
+                | ((long) (DP & 0xFF) << 40) | ((long) getCCR() << 32)
+                | ((long) (X & 0xFFFF) << 16) | (Y & 0xFFFF);
+    }
+
+    private static boolean breakpointIn(DecodedBlock block, IntPredicate stopAt) {
+        if (stopAt.test(block.start)) return true;
+        for (int i = 0; i < block.count - 1; i++) {
+            if (stopAt.test(block.nextPCs[i])) return true;
+        }
+        return false;
+    }
+
     public boolean stepWithDebugger(Debugger dbg) {
 
+        if (!serviceBeforeStep()) return true; // CWAI / SYNC
+
         int currentPC = getPC();
 
         // Point d'arret 
@@ -1151,21 +2747,26 @@ public class CPU6809 {
             return false; 
         }
 
-        int opcode = fetch8();
-        Instruction instr = opcodes[opcode];
+        int opcode = fetchOpcode();
+        Instruction instr = OPCODES[opcode];
 
         if (instr == null) {
             throw new IllegalStateException(
                 String.format("Opcode %02X non implémenté @ PC=%04X",
-                        opcode, (currentPC & 0xFFFF))
+                        fullOpcode(opcode), (currentPC & 0xFFFF))
             );
         }
 
         // Log vers la console
         System.out.println(String.format("EXEC @ %04X : %s", 
                  currentPC, instr.getMnemonic()));
-                 instr.execute(this);
-                  cycles += instr.getCycles();
+        if (engine != Engine.TABLE) {
+            executeSwitch(opcode, fetchOperand(OPERAND_MODES[opcode]));
+            cycles += CYCLE_TABLE[opcode];
+        } else {
+            instr.execute(this);
+            cycles += instr.getCycles();
+        }
 
         //registres après exécution
         if (dbg != null) dbg.dumpRegisters();
@@ -0,0 +1,10 @@
+package cpu;
+
+import memory.Memory;
+
+// Bloc traduit en bytecode JVM (classe cachée générée par BlockCompiler).
+// Exécute tout le bloc et renvoie le nombre de cycles consommés.
+interface CompiledBlock {
+
+    int run(CPU6809 cpu, Memory mem, DecodedBlock block);
+}
@@ -0,0 +1,49 @@
+package cpu;
+
+// Modèle de temps : cycles ajoutés aux cycles de base de chaque opcode.
+// FAST : coût fixe par opcode ; EXACT : coûts du matériel réel selon le
+// postbyte indexé, le masque PSH/PUL, la branche longue prise et RTI.
+// Les tables sont choisies une fois à la configuration du CPU.
+final class CycleModel {
+
+    final int[] postbyte;   // cycles en plus par postbyte indexé
+    final int[] stack;      // cycles en plus par masque PSHS/PULS/PSHU/PULU (1 par octet)
+    final int longBranch;   // LBcc prise
+    final int fullRti;      // RTI avec E=1 (tout l'état dépilé)
+
+    static final CycleModel FAST = new CycleModel(new int[256], new int[256], 0, 0);
+    static final CycleModel EXACT = new CycleModel(postbyteCycles(), stackCycles(), 1, 9);
+
+    private CycleModel(int[] postbyte, int[] stack, int longBranch, int fullRti) {
+        this.postbyte = postbyte;
+        this.stack = stack;
+        this.longBranch = longBranch;
+        this.fullRti = fullRti;
+    }
+
+    // Cycles d'une instruction connus au décodage : base + postbyte indexé
+    // + octets empilés (le postbyte et le masque sont dans le code)
+    int instructionCycles(int opcode, int mode, int arg, int[] base) {
+        int n = base[opcode];
+        if (mode == CPU6809.OP_IDX) n += postbyte[arg >>> 16];
+        if (opcode >= 0x34 && opcode <= 0x37) n += stack[arg & 0xFF];
+        return n;
+    }
+
+    private static int[] postbyteCycles() {
+        int[] t = new int[256];
+        for (int post = 0; post < 256; post++) {
+            t[post] = IndexedPostbyte.extraCycles(IndexedPostbyte.entry(post));
+        }
+        return t;
+    }
+
+    private static int[] stackCycles() {
+        int[] t = new int[256];
+        for (int mask = 0; mask < 256; mask++) {
+            // PC U/S Y X : 2 octets ; DP B A CC : 1 octet
+            t[mask] = Integer.bitCount(mask & 0x0F) + 2 * Integer.bitCount(mask & 0xF0);
+        }
+        return t;
+    }
+}
@@ -0,0 +1,47 @@
+package cpu;
+
+// Suite d'instructions sans saut, décodée une seule fois.
+// Pour chaque instruction : opcode, opérande pré-résolu et PC suivant.
+final class DecodedBlock {
+
+    final int start;
+    final int end;        // adresse qui suit la dernière instruction
+    final int count;
+    final int[] opcodes;
+    final int[] operands; // valeur ou adresse (IMM/EXT), offset (DIR), postbyte<<16|offset (IDX)
+    final int[] nextPCs;
+    final int cycles;     // total des cycles de base
+    final int cost;       // avec les cycles en plus connus au décodage (modèle du CPU)
+    final boolean selfLoop; // reboucle sur start sans écrire en mémoire (attente active possible)
+
+    // Passe à false quand une écriture touche une page du bloc
+    boolean valid = true;
+
+    // Moteur TIERED : compteur d'exécutions et version compilée
+    int hits;
+    boolean compileFailed;
+    String compileError;  // diagnostics de javac ou erreur de chargement
+    volatile CompiledBlock compiled;
+
+    DecodedBlock(int start, int end, int count,
+                 int[] opcodes, int[] operands, int[] nextPCs, int cycles, int cost,
+                 boolean selfLoop) {
+        this.start = start;
+        this.end = end;
+        this.count = count;
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.nextPCs = nextPCs;
+        this.cycles = cycles;
+        this.cost = cost;
+        this.selfLoop = selfLoop;
+    }
+
+    int firstPage() {
+        return start >> 8;
+    }
+
+    int lastPage() {
+        return (end - 1) >> 8;
+    }
+}
@@ -0,0 +1,170 @@
+package cpu;
+
+import java.util.Arrays;
+
+// Échéancier des périphériques : événements triés par cycle absolu dans un
+// tas binaire. La boucle du CPU ne compare ses cycles qu'à la prochaine
+// échéance ; les événements dus sont déclenchés entre deux instructions,
+// dans l'ordre des cycles puis de programmation.
+public final class EventScheduler {
+
+    public interface Event {
+        // cycle : échéance demandée (le CPU peut l'avoir légèrement dépassée)
+        void fire(long cycle);
+    }
+
+    // tableaux alloués au premier événement (CPU sans périphérique : rien)
+    private static final long[] NO_CYCLES = new long[0];
+    private static final Event[] NO_EVENTS = new Event[0];
+
+    private long[] when = NO_CYCLES;
+    private long[] order = NO_CYCLES;
+    private Event[] events = NO_EVENTS;
+    private int size;
+    private long sequence;
+
+    // Prévient le CPU quand la prochaine échéance avance
+    private final Runnable onEarlier;
+
+    EventScheduler(Runnable onEarlier) {
+        this.onEarlier = onEarlier;
+    }
+
+    public void schedule(long cycle, Event event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Événement nul");
+        }
+        if (size == when.length) {
+            int capacity = Math.max(16, size * 2);
+            when = Arrays.copyOf(when, capacity);
+            order = Arrays.copyOf(order, capacity);
+            events = Arrays.copyOf(events, capacity);
+        }
+        int i = size++;
+        when[i] = cycle;
+        order[i] = sequence++;
+        events[i] = event;
+        siftUp(i);
+        if (events[0] == event && when[0] == cycle) onEarlier.run();
+    }
+
+    // Retire toutes les occurrences de l'événement
+    public void cancel(Event event) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (events[i] == event) removeAt(i);
+        }
+    }
+
+    public boolean isScheduled(Event event) {
+        for (int i = 0; i < size; i++) {
+            if (events[i] == event) return true;
+        }
+        return false;
+    }
+
+    // Cycle du prochain événement, Long.MAX_VALUE si aucun
+    public long nextCycle() {
+        return size == 0 ? Long.MAX_VALUE : when[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(events, 0, size, null);
+        size = 0;
+    }
+
+    // Copie de l'échéancier pour les instantanés du CPU (les événements
+    // eux-mêmes sont partagés)
+    static final class Saved {
+        final long[] when;
+        final long[] order;
+        final Event[] events;
+        final long sequence;
+
+        Saved(long[] when, long[] order, Event[] events, long sequence) {
+            this.when = when;
+            this.order = order;
+            this.events = events;
+            this.sequence = sequence;
+        }
+    }
+
+    Saved save() {
+        return new Saved(Arrays.copyOf(when, size), Arrays.copyOf(order, size),
+                Arrays.copyOf(events, size), sequence);
+    }
+
+    void restore(Saved saved) {
+        clear();
+        int n = saved.when.length;
+        if (when.length < n) {
+            when = new long[n];
+            order = new long[n];
+            events = new Event[n];
+        }
+        // tableaux déjà ordonnés en tas
+        System.arraycopy(saved.when, 0, when, 0, n);
+        System.arraycopy(saved.order, 0, order, 0, n);
+        System.arraycopy(saved.events, 0, events, 0, n);
+        size = n;
+        sequence = saved.sequence;
+    }
+
+    // Déclenche les événements d'échéance <= now, y compris ceux
+    // programmés pendant le traitement
+    void runDue(long now) {
+        while (size > 0 && when[0] <= now) {
+            long cycle = when[0];
+            Event event = events[0];
+            removeAt(0);
+            event.fire(cycle);
+        }
+    }
+
+    // TAS
+
+    private boolean before(int i, int j) {
+        return when[i] < when[j] || (when[i] == when[j] && order[i] < order[j]);
+    }
+
+    private void swap(int i, int j) {
+        long w = when[i]; when[i] = when[j]; when[j] = w;
+        long o = order[i]; order[i] = order[j]; order[j] = o;
+        Event e = events[i]; events[i] = events[j]; events[j] = e;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (!before(i, parent)) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) return;
+            if (child + 1 < size && before(child + 1, child)) child++;
+            if (!before(child, i)) return;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void removeAt(int i) {
+        int last = --size;
+        if (i != last) {
+            swap(i, last);
+            events[last] = null;
+            siftDown(i);
+            siftUp(i);
+        } else {
+            events[last] = null;
+        }
+    }
+}
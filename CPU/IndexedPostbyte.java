@@ -0,0 +1,153 @@
+package cpu;
+
+// Table des 256 postbytes du mode indexé, calculée une fois :
+// registre de base, type d'offset, indirection, cycles et octets en plus.
+// Chaque entrée est un int compacté ; l'adresse effective se calcule avec
+// une lecture de table plus l'arithmétique du type d'offset.
+public final class IndexedPostbyte {
+
+    // Registre de base (bits 0-2)
+    public static final int REG_X = 0;
+    public static final int REG_Y = 1;
+    public static final int REG_U = 2;
+    public static final int REG_S = 3;
+    public static final int REG_PC = 4;
+    public static final int REG_NONE = 5; // [n16] : adresse étendue indirecte
+
+    // Type d'offset (bits 3-6)
+    public static final int ZERO = 0;     // ,R
+    public static final int OFF5 = 1;     // n5,R (offset dans le postbyte)
+    public static final int OFF8 = 2;     // n8,R / n8,PCR
+    public static final int OFF16 = 3;    // n16,R / n16,PCR / [n16]
+    public static final int ACC_A = 4;    // A,R
+    public static final int ACC_B = 5;    // B,R
+    public static final int ACC_D = 6;    // D,R
+    public static final int INC1 = 7;     // ,R+
+    public static final int INC2 = 8;     // ,R++
+    public static final int DEC1 = 9;     // ,-R
+    public static final int DEC2 = 10;    // ,--R
+    public static final int ILLEGAL = 15;
+
+    private static final int INDIRECT = 0x80;           // bit 7
+    // cycles en plus : bits 8-11, octets en plus : bits 12-13,
+    // offset 5 bits signé : bits 16-23
+
+    private static final int[] ENTRIES = new int[256];
+
+    static {
+        for (int post = 0; post < 256; post++) {
+            ENTRIES[post] = decode(post);
+        }
+    }
+
+    private IndexedPostbyte() {
+    }
+
+    private static int entry(int reg, int kind, boolean indirect, int cycles, int bytes) {
+        return reg | (kind << 3) | (indirect ? INDIRECT : 0) | (cycles << 8) | (bytes << 12);
+    }
+
+    private static int decode(int post) {
+        int reg = (post >> 5) & 0x03;
+
+        if ((post & 0x80) == 0) {
+            // offset 5 bits signé, jamais indirect
+            int offset = ((post & 0x1F) ^ 0x10) - 0x10;
+            return entry(reg, OFF5, false, 1, 0) | ((offset & 0xFF) << 16);
+        }
+
+        boolean ind = (post & 0x10) != 0;
+        int extra = ind ? 3 : 0; // l'indirection coûte 3 cycles
+
+        switch (post & 0x0F) {
+            case 0x00: return ind ? entry(reg, ILLEGAL, false, 0, 0) : entry(reg, INC1, false, 2, 0);
+            case 0x01: return entry(reg, INC2, ind, 3 + extra, 0);
+            case 0x02: return ind ? entry(reg, ILLEGAL, false, 0, 0) : entry(reg, DEC1, false, 2, 0);
+            case 0x03: return entry(reg, DEC2, ind, 3 + extra, 0);
+            case 0x04: return entry(reg, ZERO, ind, extra, 0);
+            case 0x05: return entry(reg, ACC_B, ind, 1 + extra, 0);
+            case 0x06: return entry(reg, ACC_A, ind, 1 + extra, 0);
+            case 0x08: return entry(reg, OFF8, ind, 1 + extra, 1);
+            case 0x09: return entry(reg, OFF16, ind, 4 + extra, 2);
+            case 0x0B: return entry(reg, ACC_D, ind, 4 + extra, 0);
+            case 0x0C: return entry(REG_PC, OFF8, ind, 1 + extra, 1);
+            case 0x0D: return entry(REG_PC, OFF16, ind, 5 + extra, 2);
+            case 0x0F: return ind ? entry(REG_NONE, OFF16, true, 5, 2) : entry(reg, ILLEGAL, false, 0, 0);
+            default:   return entry(reg, ILLEGAL, false, 0, 0);
+        }
+    }
+
+    // ACCÈS
+
+    public static int entry(int post) {
+        return ENTRIES[post & 0xFF];
+    }
+
+    public static int base(int entry) {
+        return entry & 0x07;
+    }
+
+    public static int kind(int entry) {
+        return (entry >> 3) & 0x0F;
+    }
+
+    public static boolean isIndirect(int entry) {
+        return (entry & INDIRECT) != 0;
+    }
+
+    public static int extraCycles(int entry) {
+        return (entry >> 8) & 0x0F;
+    }
+
+    public static int extraBytes(int entry) {
+        return (entry >> 12) & 0x03;
+    }
+
+    public static int offset5(int entry) {
+        return (byte) (entry >> 16);
+    }
+
+    public static boolean isLegal(int post) {
+        return kind(ENTRIES[post & 0xFF]) != ILLEGAL;
+    }
+
+    // Forme assembleur du postbyte ; offset = octets suivants déjà lus,
+    // next = adresse de l'instruction suivante (pour PCR)
+    public static String format(int post, int offset, int next) {
+        int e = ENTRIES[post & 0xFF];
+        String reg;
+        switch (base(e)) {
+            case REG_X: reg = "X"; break;
+            case REG_Y: reg = "Y"; break;
+            case REG_U: reg = "U"; break;
+            case REG_S: reg = "S"; break;
+            default:    reg = "PCR";
+        }
+
+        String s;
+        switch (kind(e)) {
+            case ZERO:  s = "," + reg; break;
+            case OFF5:  s = offset5(e) + "," + reg; break;
+            case OFF8:
+                s = base(e) == REG_PC
+                        ? String.format("$%04X,PCR", (next + (byte) offset) & 0xFFFF)
+                        : String.format("%d,%s", (byte) offset, reg);
+                break;
+            case OFF16:
+                if (base(e) == REG_NONE) return String.format("[$%04X]", offset & 0xFFFF);
+                s = base(e) == REG_PC
+                        ? String.format("$%04X,PCR", (next + (short) offset) & 0xFFFF)
+                        : String.format("%d,%s", (short) offset, reg);
+                break;
+            case ACC_A: s = "A," + reg; break;
+            case ACC_B: s = "B," + reg; break;
+            case ACC_D: s = "D," + reg; break;
+            case INC1:  s = "," + reg + "+"; break;
+            case INC2:  s = "," + reg + "++"; break;
+            case DEC1:  s = ",-" + reg; break;
+            case DEC2:  s = ",--" + reg; break;
+            default:    return String.format("???(%02X)", post & 0xFF);
+        }
+        return isIndirect(e) ? "[" + s + "]" : s;
+    }
+}
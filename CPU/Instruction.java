@@ -12,14 +12,20 @@ public class Instruction {
         DIRECT,
         INDEXED,
         EXTENDED,
-        INHERENT
+        INHERENT,
+        RELATIVE8,
+        RELATIVE16
     }
 
+    // Préfixes des pages 2 et 3 (opcodes $10xx / $11xx)
+    public static final int PAGE2 = 0x10;
+    public static final int PAGE3 = 0x11;
+
   
     // Données de l’instruction
    
     private final String mnemonic;
-    private final int opcode;     //
+    private final int opcode;     // 1 octet, ou $10xx / $11xx si préfixé
     private final int size;
     private final int cycles;
     private final AddressingMode mode;
@@ -36,7 +42,7 @@ public class Instruction {
                        Consumer<CPU6809> executor) {
 
         this.mnemonic = mnemonic;
-        this.opcode = opcode & 0xFF;
+        this.opcode = opcode & 0xFFFF;
         this.size = size;
         this.cycles = cycles;
         this.mode = mode;
@@ -54,6 +60,23 @@ public class Instruction {
         return opcode;
     }
 
+    // 0 sans préfixe, sinon PAGE2 / PAGE3
+    public int getPrefix() {
+        return opcode >> 8;
+    }
+
+    // Position dans la table plate à 3 pages : page * 256 + opcode
+    public int getTableIndex() {
+        return tableIndex(opcode);
+    }
+
+    public static int tableIndex(int opcode) {
+        int prefix = opcode >> 8;
+        if (prefix == 0) return opcode & 0xFF;
+        if (prefix == PAGE2 || prefix == PAGE3) return ((prefix - 0x0F) << 8) | (opcode & 0xFF);
+        return -1;
+    }
+
     public int getSize() {
         return size;
     }
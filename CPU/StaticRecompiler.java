@@ -0,0 +1,218 @@
+package cpu;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+import assembler.Assembler;
+import memory.Memory;
+
+// Recompilateur statique : part du vecteur RESET, suit le flot de contrôle
+// d'une image (ROM assemblée ou binaire) et écrit une classe Java qui
+// exécute directement le programme sur une Memory. Les sauts indirects vers
+// du code non traduit repassent par l'interpréteur du CPU6809.
+// L'image traduite doit rester en lecture seule pendant l'exécution.
+// La classe générée appartient au paquet cpu (accès réservés au code traduit).
+public final class StaticRecompiler {
+
+    private final Memory image;
+    private final CPU6809 decoder;
+    private final int start;
+    private final int end; // exclu
+
+    // blocs traduits, par adresse de début
+    private final Map<Integer, DecodedBlock> blocks = new TreeMap<>();
+
+    public StaticRecompiler(Memory image, int start, int end) {
+        this.image = image;
+        this.decoder = new CPU6809(image);
+        this.start = start & 0xFFFF;
+        this.end = Math.min(end, 0x10000);
+    }
+
+    // Parcours du flot de contrôle à partir des points d'entrée
+    public void explore(int... entries) {
+        Deque<Integer> work = new ArrayDeque<>();
+        for (int e : entries) work.add(e & 0xFFFF);
+
+        while (!work.isEmpty()) {
+            int pc = work.poll();
+            if (pc < start || pc >= end || blocks.containsKey(pc)) continue;
+
+            DecodedBlock block = decoder.decodeBlock(pc);
+            if (block == null || block.end > end) continue;
+            if (BlockCompiler.translate(block, CPU6809.OPERAND_MODES, CPU6809.CYCLE_TABLE, timing(), false) == null) continue;
+
+            blocks.put(pc, block);
+
+            int last = block.opcodes[block.count - 1];
+            int arg = block.operands[block.count - 1];
+            switch (last) {
+                case 0x7E: // JMP étendu
+                    work.add(arg);
+                    break;
+                case 0xBD: // JSR étendu
+                    work.add(arg);
+                    work.add(block.end);
+                    break;
+                case 0x9D: case 0xAD: // JSR direct / indexé : cible inconnue
+                    work.add(block.end);
+                    break;
+                case 0x0E: case 0x6E: case 0x39: // JMP direct / indexé, RTS
+                    break;
+                case 0x35: case 0x37: // PULS / PULU
+                    if ((arg & 0x80) == 0) work.add(block.end);
+                    break;
+                case 0x20: case 0x16: // BRA / LBRA
+                    work.add(arg);
+                    break;
+                default:
+                    if ((last & 0xFF) >= 0x20 && (last & 0xFF) <= 0x2F && last < CPU6809.P3
+                            || last == 0x8D || last == 0x17) {
+                        work.add(arg); // Bcc / LBcc / BSR / LBSR : cible connue
+                    }
+                    // suite du bloc (branche non prise, retour, bloc coupé)
+                    work.add(block.end);
+            }
+        }
+    }
+
+    // Cycles exacts dans le code généré (même option que CPU6809)
+    public void setExactCycles(boolean value) {
+        decoder.setExactCycles(value);
+    }
+
+    private CycleModel timing() {
+        return decoder.isExactCycles() ? CycleModel.EXACT : CycleModel.FAST;
+    }
+
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    // Source Java de la classe traduite : "Classe" ou "cpu.Classe"
+    public String generate(String className) {
+        String name = className.startsWith("cpu.") ? className.substring(4) : className;
+        if (name.isEmpty() || name.indexOf('.') >= 0) {
+            throw new IllegalArgumentException("La classe générée doit être dans le paquet cpu : " + className);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package cpu;\n\n");
+        sb.append("import memory.Memory;\n\n");
+        sb.append("import static cpu.TranslatedOps.*;\n\n");
+        sb.append(String.format("// Généré par StaticRecompiler (%04X-%04X, %d blocs) : ne pas modifier%n",
+                start, end - 1, blocks.size()));
+        sb.append("public final class ").append(name).append(" {\n\n");
+        sb.append("    private ").append(name).append("() {\n    }\n\n");
+
+        // boucle de dispatch
+        sb.append("    // Exécute au moins budget cycles (blocs entiers) ; renvoie les cycles consommés\n");
+        sb.append("    public static long run(CPU6809 cpu, Memory mem, long budget) {\n");
+        sb.append("        int[] regs = load(cpu);\n");
+        sb.append("        long done = 0;\n\n");
+        sb.append("        while (done < budget) {\n");
+        sb.append("            int cyc;\n");
+        sb.append("            // événement ou interruption à traiter : passage par l'interpréteur\n");
+        sb.append("            switch (cpu.isEventDue(0) ? -1 : regs[8]) {\n");
+        for (int pc : blocks.keySet()) {
+            sb.append(String.format("                case 0x%04X: cyc = b%04X(cpu, regs, mem); break;%n", pc, pc));
+        }
+        sb.append("                default: {\n");
+        sb.append("                    // code non traduit : une instruction par l'interpréteur\n");
+        sb.append("                    store(cpu, regs);\n");
+        sb.append("                    long before = cpu.getCycles();\n");
+        sb.append("                    CPU6809.ExitReason reason = cpu.run(1);\n");
+        sb.append("                    done += cpu.getCycles() - before;\n");
+        sb.append("                    if (reason != CPU6809.ExitReason.BUDGET_EXHAUSTED) return done;\n");
+        sb.append("                    regs = load(cpu);\n");
+        sb.append("                    continue;\n");
+        sb.append("                }\n");
+        sb.append("            }\n");
+        sb.append("            done += cyc;\n");
+        sb.append("            cpu.addCycles(cyc);\n");
+        sb.append("        }\n\n");
+        sb.append("        store(cpu, regs);\n");
+        sb.append("        return done;\n");
+        sb.append("    }\n\n");
+
+        sb.append("    private static int[] load(CPU6809 cpu) {\n");
+        sb.append("        return new int[] { cpu.getA(), cpu.getB(), cpu.getDP(), cpu.getCCR(),\n");
+        sb.append("                cpu.getX(), cpu.getY(), cpu.getS(), cpu.getU(), cpu.getPC() };\n");
+        sb.append("    }\n\n");
+        sb.append("    private static void store(CPU6809 cpu, int[] regs) {\n");
+        sb.append("        cpu.setA(regs[0]); cpu.setB(regs[1]); cpu.setDP(regs[2]); cpu.setCCR(regs[3]);\n");
+        sb.append("        cpu.setX(regs[4]); cpu.setY(regs[5]); storeS(cpu, regs[6]); cpu.setU(regs[7]);\n");
+        sb.append("        cpu.setPC(regs[8]);\n");
+        sb.append("    }\n");
+
+        // une méthode par bloc, registres en variables locales
+        for (DecodedBlock block : blocks.values()) {
+            String body = BlockCompiler.translate(block, CPU6809.OPERAND_MODES, CPU6809.CYCLE_TABLE, timing(), false);
+            sb.append('\n');
+            sb.append(String.format("    private static int b%04X(CPU6809 cpu, int[] regs, Memory mem) {%n", block.start));
+            sb.append("        int a = regs[0], b = regs[1], dp = regs[2], cc = regs[3];\n");
+            sb.append("        int x = regs[4], y = regs[5], s = regs[6], u = regs[7];\n");
+            sb.append("        int pc = ").append(block.end).append(";\n");
+            sb.append("        int cyc = ")
+              .append(BlockCompiler.blockCycles(block, CPU6809.OPERAND_MODES, CPU6809.CYCLE_TABLE, timing()))
+              .append(";\n");
+            sb.append(body.replace("            ", "        "));
+            sb.append("        regs[0] = a; regs[1] = b; regs[2] = dp; regs[3] = cc;\n");
+            sb.append("        regs[4] = x; regs[5] = y; regs[6] = s; regs[7] = u; regs[8] = pc;\n");
+            sb.append("        return cyc;\n");
+            sb.append("    }\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    // Utilisation :
+    //   StaticRecompiler programme.asm  Classe [sortie.java]
+    //   StaticRecompiler image.bin      Classe [sortie.java] [adresse de chargement]
+    // Un source .asm est assemblé en ROM (FC00-FFFF) ; un binaire est chargé
+    // par défaut en haut de la mémoire pour que les vecteurs soient en place.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : StaticRecompiler <image.bin|programme.asm> <Classe> [sortie.java] [adresse]");
+            System.exit(1);
+        }
+
+        Path input = Paths.get(args[0]);
+        String className = args[1];
+        Memory mem = new Memory();
+        int from;
+        int to;
+
+        if (args[0].toLowerCase().endsWith(".asm")) {
+            String src = new String(Files.readAllBytes(input), StandardCharsets.UTF_8);
+            new Assembler().assembleAndLoad(src, mem);
+            from = 0xFC00;
+            to = 0x10000;
+        } else {
+            byte[] data = Files.readAllBytes(input);
+            from = args.length > 3 ? Integer.parseInt(args[3].replace("$", "").replace("0x", ""), 16)
+                                   : 0x10000 - data.length;
+            mem.loadProgram(data, from);
+            to = from + data.length;
+        }
+
+        StaticRecompiler rec = new StaticRecompiler(mem, from, to);
+        rec.explore(mem.readWord(0xFFFE));
+        String source = rec.generate(className);
+
+        if (args.length > 2) {
+            Files.write(Paths.get(args[2]), source.getBytes(StandardCharsets.UTF_8));
+            System.out.println(rec.blockCount() + " blocs traduits -> " + args[2]);
+        } else {
+            System.out.print(source);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cpu;
+
+import memory.Memory;
+
+// Aides appelées par le code traduit (BlockCompiler, StaticRecompiler).
+// Mêmes règles de flags que CPU6809 ; cc est passé et renvoyé entier.
+// Hors de l'API : le code traduit est toujours dans le paquet cpu
+final class TranslatedOps {
+
+    private TranslatedOps() {
+    }
+
+    public static int rd16(Memory mem, int addr) {
+        return ((mem.readByte(addr) << 8) | mem.readByte(addr + 1)) & 0xFFFF;
+    }
+
+    public static void wr16(Memory mem, int addr, int value) {
+        mem.writeByte(addr, (value >> 8) & 0xFF);
+        mem.writeByte(addr + 1, value & 0xFF);
+    }
+
+    // Accès du code traduit : done = cycles du bloc écoulés avant
+    // l'instruction, pas encore comptés par le CPU. Un périphérique voit le
+    // cycle de l'instruction (compteur, échéance d'émission)
+    public static int rd8(CPU6809 cpu, Memory mem, int done, int addr) {
+        if (mem.getPageType((addr >> 8) & 0xFF) != Memory.PageType.DEVICE) return mem.readByte(addr);
+        cpu.addCycles(done);
+        int value = mem.readByte(addr);
+        cpu.addCycles(-done);
+        return value;
+    }
+
+    public static void wr8(CPU6809 cpu, Memory mem, int done, int addr, int value) {
+        if (mem.getPageType((addr >> 8) & 0xFF) != Memory.PageType.DEVICE) {
+            mem.writeByte(addr, value);
+            return;
+        }
+        cpu.addCycles(done);
+        mem.writeByte(addr, value);
+        cpu.addCycles(-done);
+    }
+
+    public static int rd16(CPU6809 cpu, Memory mem, int done, int addr) {
+        return ((rd8(cpu, mem, done, addr) << 8) | rd8(cpu, mem, done, addr + 1)) & 0xFFFF;
+    }
+
+    public static void wr16(CPU6809 cpu, Memory mem, int done, int addr, int value) {
+        wr8(cpu, mem, done, addr, (value >> 8) & 0xFF);
+        wr8(cpu, mem, done, addr + 1, value & 0xFF);
+    }
+
+    // S chargé par le programme (LDS, PULU S) : NMI accepté ensuite
+    static void armNmi(CPU6809 cpu) {
+        cpu.armNmi();
+    }
+
+    // Recopie de S en fin de bloc, sans effet sur NMI
+    static void storeS(CPU6809 cpu, int s) {
+        cpu.storeS(s);
+    }
+
+    public static int nz8(int r) {
+        r &= 0xFF;
+        return (r == 0 ? 0x04 : 0) | ((r & 0x80) != 0 ? 0x08 : 0);
+    }
+
+    public static int ld8(int cc, int r) {
+        return (cc & ~0x0E) | nz8(r);
+    }
+
+    public static int ld16(int cc, int r) {
+        r &= 0xFFFF;
+        return (cc & ~0x0E) | (r == 0 ? 0x04 : 0) | ((r & 0x8000) != 0 ? 0x08 : 0);
+    }
+
+    public static int add8(int cc, int a, int b, int result) {
+        int r = result & 0xFF;
+        int f = nz8(r);
+        if (result > 0xFF) f |= 0x01;
+        if (((~(a ^ b) & (a ^ r)) & 0x80) != 0) f |= 0x02;
+        if ((((a & 0x0F) + (b & 0x0F)) & 0x10) != 0) f |= 0x20;
+        return (cc & ~0x2F) | f;
+    }
+
+    public static int sub8(int cc, int a, int b, int result) {
+        int r = result & 0xFF;
+        int f = nz8(r);
+        if ((result & 0x100) != 0) f |= 0x01;
+        if ((((a ^ b) & (a ^ r)) & 0x80) != 0) f |= 0x02;
+        return (cc & ~0x0F) | f;
+    }
+
+    public static int sub16(int cc, int a, int b, int result) {
+        int r = result & 0xFFFF;
+        int f = (r == 0 ? 0x04 : 0) | ((r & 0x8000) != 0 ? 0x08 : 0);
+        if ((result & 0x10000) != 0) f |= 0x01;
+        if ((((a ^ b) & (a ^ r)) & 0x8000) != 0) f |= 0x02;
+        return (cc & ~0x0F) | f;
+    }
+
+    // Condition de branche (4 bits bas de Bcc / LBcc), comme CPU6809
+    public static boolean branch(int cc, int cond) {
+        boolean n = (cc & 0x08) != 0;
+        boolean v = (cc & 0x02) != 0;
+        boolean r;
+        switch (cond >> 1) {
+            case 0: r = true; break;
+            case 1: r = (cc & 0x05) == 0; break;
+            case 2: r = (cc & 0x01) == 0; break;
+            case 3: r = (cc & 0x04) == 0; break;
+            case 4: r = !v; break;
+            case 5: r = !n; break;
+            case 6: r = n == v; break;
+            default: r = n == v && (cc & 0x04) == 0; break;
+        }
+        return ((cond & 1) == 0) == r;
+    }
+
+    public static int inc(int cc, int r) {
+        return (cc & ~0x0E) | nz8(r) | ((r & 0xFF) == 0x80 ? 0x02 : 0);
+    }
+
+    public static int dec(int cc, int r) {
+        return (cc & ~0x0E) | nz8(r) | ((r & 0xFF) == 0x7F ? 0x02 : 0);
+    }
+
+    public static int clr(int cc) {
+        return (cc & ~0x0F) | 0x04;
+    }
+
+    public static int neg(int cc, int value, int r) {
+        return (cc & ~0x0F) | nz8(r) | (value != 0 ? 0x01 : 0) | (value == 0x80 ? 0x02 : 0);
+    }
+}
@@ -159,12 +159,24 @@ public class GUI extends JFrame {
                 @Override
                 protected Void doInBackground() throws Exception {
                     while (running) {
-                        cpu.step();
-
+                        // une instruction par tick pour l'animation
+                        CPU6809.ExitReason reason = cpu.run(1);
+                        if (reason != CPU6809.ExitReason.BUDGET_EXHAUSTED) {
+                            running = false;
+                            if (reason == CPU6809.ExitReason.ILLEGAL_OPCODE) {
+                                int pc = cpu.getPC();
+                                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null,
+                                        String.format("Erreur CPU : opcode %02X non implémenté @ %04X",
+                                                memory.readByte(pc), pc)));
+                            }
+                        }
+
+                        // relevé sur ce thread, entre deux run(1) : pas de course
+                        // avec les écritures du CPU
+                        Memory.DirtyRegions dirty = memory.takeDirty();
                         SwingUtilities.invokeLater(() -> {
                             cpuPanel.refresh();
-                            refreshRAM();
-                            refreshROM();
+                            refreshMemory(dirty);
                             consoleArea.setText(
                                 disassembler.disassemble(cpu.getPC(), 10)
                             );
@@ -198,8 +210,7 @@ public class GUI extends JFrame {
             try {
                 cpu.step();
                 cpuPanel.refresh();
-                refreshRAM();
-                refreshROM();
+                refreshMemory();
 
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(null, "Erreur CPU : " + ex.getMessage());
@@ -214,8 +225,7 @@ public class GUI extends JFrame {
         btnReset.addActionListener(e -> {
             cpu.reset();
             cpuPanel.refresh();
-            refreshRAM();
-            refreshROM();
+            refreshMemory();
         });
         contentPane.add(btnReset);
 
@@ -342,11 +352,33 @@ public class GUI extends JFrame {
     }
 
     //  MISE À JOUR MEMOIRE 
+    // Seules les adresses modifiées depuis le dernier rafraîchissement
+    // sont relues. CPU arrêté : relevé sur l'EDT
+    private void refreshMemory() {
+        refreshMemory(memory.takeDirty());
+    }
+
+    private void refreshMemory(Memory.DirtyRegions dirty) {
+        for (Memory.DirtyRegions.Range r : dirty.getRanges()) {
+            refreshRows(tableRAM, 0x0000, r);
+            refreshRows(tableROM, 0xFC00, r);
+        }
+    }
+
+    private void refreshRows(JTable table, int base, Memory.DirtyRegions.Range r) {
+        DefaultTableModel model = (DefaultTableModel) table.getModel();
+        int from = Math.max(r.getStart(), base);
+        int to = Math.min(r.getEnd(), base + model.getRowCount());
+        for (int addr = from; addr < to; addr++) {
+            model.setValueAt(String.format("%02X", memory.peekByte(addr)), addr - base, 1);
+        }
+    }
+
     private void refreshRAM() {
         DefaultTableModel model = (DefaultTableModel) tableRAM.getModel();
         for (int i = 0; i < model.getRowCount(); i++) {
             int addr = Integer.parseInt(model.getValueAt(i, 0).toString(), 16);
-            int value = memory.readByte(addr);
+            int value = memory.peekByte(addr);
             model.setValueAt(String.format("%02X", value), i, 1);
         }
     }
@@ -355,7 +387,7 @@ public class GUI extends JFrame {
         DefaultTableModel model = (DefaultTableModel) tableROM.getModel();
         for (int i = 0; i < model.getRowCount(); i++) {
             int addr = Integer.parseInt(model.getValueAt(i, 0).toString(), 16);
-            int value = memory.readByte(addr);
+            int value = memory.peekByte(addr);
             model.setValueAt(String.format("%02X", value), i, 1);
         }
     }
@@ -11,22 +11,23 @@ public class Assembler {
     int addr = 0xFC00;       // Début ROM 
     String[] lines = src.split("\n");
 
-    // Effacer la ROM avant de charger
+    // Effacer la ROM avant de charger (écritures de chargeur : la ROM
+    // est accessible et les ports d'E/S ne sont pas déclenchés)
     for (int i = 0xFC00; i <= 0xFFFF; i++)
-        memory.writeByte(i, 0x00);
+        memory.loadByte(i, 0x00);
 
     
     AtomicInteger cursor = new AtomicInteger(0xFC00);
 
  // writeByte
  IntConsumer writeByte = b ->
-         memory.writeByte(cursor.getAndIncrement(), b & 0xFF);
+         memory.loadByte(cursor.getAndIncrement(), b & 0xFF);
 
  // writeWord
  IntConsumer writeWord = w -> {
      int pos = cursor.getAndIncrement();
-     memory.writeByte(pos, (w >> 8) & 0xFF);
-     memory.writeByte(cursor.getAndIncrement(), w & 0xFF);
+     memory.loadByte(pos, (w >> 8) & 0xFF);
+     memory.loadByte(cursor.getAndIncrement(), w & 0xFF);
  };
  
  
@@ -78,42 +79,96 @@ public class Assembler {
             //pour détecter mode d'adressage 
             boolean isImmediate = operand != null && operand.startsWith("#");
 
-            boolean isIndexed = operand != null && operand.matches("^.*?,\\s*[xXyY]$");
+            // indexé : "n,R", ",R+", "A,R", "n,PCR", "[...]"
+            boolean isIndexed = operand != null && !isImmediate &&
+                                (operand.contains(",") || operand.startsWith("["));
 
-            
-            boolean isExtended = operand != null && !isImmediate && !isIndexed &&
+            // PSHS / PULS ... : liste de registres, pas une adresse
+            boolean isRegisterList = mnemonic.startsWith("PSH") || mnemonic.startsWith("PUL");
+
+            boolean isExtended = operand != null && !isImmediate && !isIndexed && !isRegisterList &&
                                  parseNumber.apply(operand) > 0xFF;
 
-            boolean isDirect = operand != null && !isImmediate && !isIndexed &&
+            boolean isDirect = operand != null && !isImmediate && !isIndexed && !isRegisterList &&
                                !isExtended && parseNumber.apply(operand) <= 0xFF;
    
             
             java.util.function.Consumer<String> emitIndexed = (opnd) -> {
-                // opnd example: ",X" or "5,X" or "$05,X" or "$1234,X"
+                // formes : ,R  n,R  A,R  B,R  D,R  ,R+  ,R++  ,-R  ,--R  n,PCR
+                // (R = X, Y, U, S), versions indirectes [..] et [n] étendu indirect
                 String o = opnd.trim();
-                boolean useY = o.endsWith(",Y") || o.endsWith(",y");
-                // enlever suffixe ,X / ,Y
-                String before = o.substring(0, o.length() - 2).trim();
-                // si nothing before (i.e. ",X")
-                if (before.isEmpty()) {
-                    int post = 0x00 | (useY ? 0x20 : 0x00);
-                    writeByte.accept(post);
-                } else {
-                    // parse offset (can be hex $nn ou decimal)
-                    int val = parseNumber.apply(before);
-                    if (val >= -128 && val <= 127) {
-                        int off8 = val & 0xFF;
-                        int post = 0x08 | (useY ? 0x20 : 0x00);
-                        writeByte.accept(post);
-                        writeByte.accept(off8);
+                boolean indirect = o.startsWith("[") && o.endsWith("]");
+                if (indirect) o = o.substring(1, o.length() - 1).trim();
+                int ind = indirect ? 0x10 : 0x00;
+
+                int comma = o.lastIndexOf(',');
+                if (comma < 0) {
+                    if (!indirect) throw new IllegalArgumentException("Mode indexé invalide : " + opnd);
+                    writeByte.accept(0x9F);
+                    writeWord.accept(parseNumber.apply(o) & 0xFFFF);
+                    return;
+                }
+                String before = o.substring(0, comma).trim();
+                String reg = o.substring(comma + 1).trim().toUpperCase();
+
+                // n,PCR : n est l'adresse cible, offset relatif à la fin de l'instruction
+                if (reg.equals("PCR") || reg.equals("PC")) {
+                    int target = parseNumber.apply(before);
+                    int off8 = target - (cursor.get() + 2);
+                    if (off8 >= -128 && off8 <= 127) {
+                        writeByte.accept(0x8C | ind);
+                        writeByte.accept(off8 & 0xFF);
                     } else {
-                        // offset16
-                        int off16 = val & 0xFFFF;
-                        int post = 0x09 | (useY ? 0x20 : 0x00);
-                        writeByte.accept(post);
-                        writeByte.accept((off16 >> 8) & 0xFF);
-                        writeByte.accept(off16 & 0xFF);
+                        int off16 = target - (cursor.get() + 3);
+                        writeByte.accept(0x8D | ind);
+                        writeWord.accept(off16 & 0xFFFF);
+                    }
+                    return;
+                }
+
+                int mode = -1;
+                if (before.isEmpty()) {
+                    if (reg.endsWith("++"))      { mode = 0x81; reg = reg.substring(0, reg.length() - 2); }
+                    else if (reg.endsWith("+"))  { mode = 0x80; reg = reg.substring(0, reg.length() - 1); }
+                    else if (reg.startsWith("--")) { mode = 0x83; reg = reg.substring(2); }
+                    else if (reg.startsWith("-"))  { mode = 0x82; reg = reg.substring(1); }
+                    else                         { mode = 0x84; }
+                } else if (before.equalsIgnoreCase("A")) {
+                    mode = 0x86;
+                } else if (before.equalsIgnoreCase("B")) {
+                    mode = 0x85;
+                } else if (before.equalsIgnoreCase("D")) {
+                    mode = 0x8B;
+                }
+
+                int rr;
+                switch (reg.trim()) {
+                    case "X": rr = 0x00; break;
+                    case "Y": rr = 0x20; break;
+                    case "U": rr = 0x40; break;
+                    case "S": rr = 0x60; break;
+                    default:
+                        throw new IllegalArgumentException("Registre d'index inconnu : " + reg);
+                }
+
+                if (mode >= 0) {
+                    if (indirect && (mode == 0x80 || mode == 0x82)) {
+                        throw new IllegalArgumentException("Mode indexé sans forme indirecte : " + opnd);
                     }
+                    writeByte.accept(mode | rr | ind);
+                    return;
+                }
+
+                // offset constant : 5 bits dans le postbyte, sinon 8 ou 16 bits
+                int val = parseNumber.apply(before);
+                if (!indirect && val >= -16 && val <= 15) {
+                    writeByte.accept(rr | (val & 0x1F));
+                } else if (val >= -128 && val <= 127) {
+                    writeByte.accept(0x88 | rr | ind);
+                    writeByte.accept(val & 0xFF);
+                } else {
+                    writeByte.accept(0x89 | rr | ind);
+                    writeWord.accept(val & 0xFFFF);
                 }
             };
 
@@ -126,6 +181,44 @@ public class Assembler {
             //écrire direct (1 octet) ou extended (2 octets)
             java.util.function.Function<String, Integer> asNumber = (opnd) -> parseNumber.apply(opnd);
 
+            final String arg = operand;
+
+            // instructions 16 bits préfixées ($10xx / $11xx) : base = opcode du
+            // mode immédiat, +$10 direct, +$20 indexé, +$30 étendu
+            IntConsumer emitPrefixed16 = (base) -> {
+                int op = base + (isImmediate ? 0x00 : isDirect ? 0x10 : isIndexed ? 0x20 : 0x30);
+                writeByte.accept(op >> 8);
+                writeByte.accept(op & 0xFF);
+                if (isImmediate) {
+                    writeWord.accept(immValue.apply(arg) & 0xFFFF);
+                } else if (isDirect) {
+                    writeByte.accept(asNumber.apply(arg) & 0xFF);
+                } else if (isIndexed) {
+                    emitIndexed.accept(arg);
+                } else {
+                    writeWord.accept(asNumber.apply(arg) & 0xFFFF);
+                }
+            };
+
+            // branches : l'opérande est l'adresse cible, le déplacement est
+            // relatif à l'instruction suivante
+            IntConsumer emitBranch8 = (op) -> {
+                int offset = asNumber.apply(arg) - (cursor.get() + 2);
+                if (offset < -128 || offset > 127) {
+                    throw new IllegalArgumentException("Branche hors de portée (utiliser la forme longue) : " + arg);
+                }
+                writeByte.accept(op);
+                writeByte.accept(offset);
+            };
+
+            IntConsumer emitBranch16 = (op) -> {
+                int size = op > 0xFF ? 4 : 3; // préfixe $10 pour LBcc
+                int offset = asNumber.apply(arg) - (cursor.get() + size);
+                if (op > 0xFF) writeByte.accept(op >> 8);
+                writeByte.accept(op & 0xFF);
+                writeWord.accept(offset & 0xFFFF);
+            };
+
             // SWITCH sur mnemonique 
             switch (mnemonic) {
                 // LOADS  (LDA, LDB, LDX, LDU)
@@ -561,6 +654,100 @@ public class Assembler {
                     continue;
               
 
+                // LDY / LDS / STY / STS / CMPD / CMPY (page 2), CMPU / CMPS (page 3)
+                case "LDY":
+                    emitPrefixed16.accept(0x108E);
+                    continue;
+                case "LDS":
+                    emitPrefixed16.accept(0x10CE);
+                    continue;
+                case "STY":
+                case "STS":
+                    if (isImmediate) {
+                        throw new IllegalArgumentException("Mode immédiat impossible pour " + mnemonic);
+                    }
+                    emitPrefixed16.accept(mnemonic.equals("STY") ? 0x108F : 0x10CF);
+                    continue;
+                case "CMPD":
+                    emitPrefixed16.accept(0x1083);
+                    continue;
+                case "CMPY":
+                    emitPrefixed16.accept(0x108C);
+                    continue;
+                case "CMPU":
+                    emitPrefixed16.accept(0x1183);
+                    continue;
+                case "CMPS":
+                    emitPrefixed16.accept(0x118C);
+                    continue;
+
+                // BRANCHES courtes / longues
+                case "BRA": emitBranch8.accept(0x20); continue;
+                case "BRN": emitBranch8.accept(0x21); continue;
+                case "BHI": emitBranch8.accept(0x22); continue;
+                case "BLS": emitBranch8.accept(0x23); continue;
+                case "BCC": case "BHS": emitBranch8.accept(0x24); continue;
+                case "BCS": case "BLO": emitBranch8.accept(0x25); continue;
+                case "BNE": emitBranch8.accept(0x26); continue;
+                case "BEQ": emitBranch8.accept(0x27); continue;
+                case "BVC": emitBranch8.accept(0x28); continue;
+                case "BVS": emitBranch8.accept(0x29); continue;
+                case "BPL": emitBranch8.accept(0x2A); continue;
+                case "BMI": emitBranch8.accept(0x2B); continue;
+                case "BGE": emitBranch8.accept(0x2C); continue;
+                case "BLT": emitBranch8.accept(0x2D); continue;
+                case "BGT": emitBranch8.accept(0x2E); continue;
+                case "BLE": emitBranch8.accept(0x2F); continue;
+                case "BSR": emitBranch8.accept(0x8D); continue;
+
+                case "LBRA": emitBranch16.accept(0x16); continue;
+                case "LBSR": emitBranch16.accept(0x17); continue;
+                case "LBRN": emitBranch16.accept(0x1021); continue;
+                case "LBHI": emitBranch16.accept(0x1022); continue;
+                case "LBLS": emitBranch16.accept(0x1023); continue;
+                case "LBCC": case "LBHS": emitBranch16.accept(0x1024); continue;
+                case "LBCS": case "LBLO": emitBranch16.accept(0x1025); continue;
+                case "LBNE": emitBranch16.accept(0x1026); continue;
+                case "LBEQ": emitBranch16.accept(0x1027); continue;
+                case "LBVC": emitBranch16.accept(0x1028); continue;
+                case "LBVS": emitBranch16.accept(0x1029); continue;
+                case "LBPL": emitBranch16.accept(0x102A); continue;
+                case "LBMI": emitBranch16.accept(0x102B); continue;
+                case "LBGE": emitBranch16.accept(0x102C); continue;
+                case "LBLT": emitBranch16.accept(0x102D); continue;
+                case "LBGT": emitBranch16.accept(0x102E); continue;
+                case "LBLE": emitBranch16.accept(0x102F); continue;
+
+                // INTERRUPTIONS LOGICIELLES
+                case "SWI":
+                    writeByte.accept(0x3F);
+                    continue;
+                case "SWI2":
+                    writeByte.accept(0x10);
+                    writeByte.accept(0x3F);
+                    continue;
+                case "SWI3":
+                    writeByte.accept(0x11);
+                    writeByte.accept(0x3F);
+                    continue;
+                case "RTI":
+                    writeByte.accept(0x3B);
+                    continue;
+
+                // CWAI / SYNC / ANDCC / ORCC
+                case "SYNC":
+                    writeByte.accept(0x13);
+                    continue;
+                case "CWAI":
+                case "ANDCC":
+                case "ORCC":
+                    if (!isImmediate) {
+                        throw new IllegalArgumentException(mnemonic + " attend un opérande immédiat : " + line);
+                    }
+                    writeByte.accept(mnemonic.equals("CWAI") ? 0x3C : mnemonic.equals("ANDCC") ? 0x1C : 0x1A);
+                    writeByte.accept(immValue.apply(operand) & 0xFF);
+                    continue;
+
                 // STACK: PSHS / PULS / PSHU / PULU
                 case "PSHS":
                     writeByte.accept(0x34);
@@ -590,8 +777,8 @@ public class Assembler {
     }
 
     //  Vecteur RESET
-    memory.writeByte(0xFFFE, 0xFC);
-    memory.writeByte(0xFFFF, 0x00);
+    memory.loadByte(0xFFFE, 0xFC);
+    memory.loadByte(0xFFFF, 0x00);
 
     System.out.println("Programme assemblé et chargé !");
 }
@@ -1,8 +1,12 @@
 package assembler;
 
 import cpu.CPU6809;
+import cpu.IndexedPostbyte;
 import cpu.Instruction;
 import memory.Memory;
+import memory.Mmu;
+
+import java.util.function.IntUnaryOperator;
 
 public class Disassembler6809 {
 
@@ -13,16 +17,38 @@ public class Disassembler6809 {
         this.cpu = cpu;
         this.mem = mem;
     }
+    // Lecture sans effet de bord : désassembler n'ouvre pas les ports d'E/S
     public String disassemble(int start, int lines) {
+        return disassemble(mem::peekByte, start, lines, "");
+    }
+
+    // Contenu d'une banque, mappée ou non, vu comme s'il occupait la fenêtre
+    // de l'adresse start ; hors de cette fenêtre on lit la mémoire courante
+    public String disassembleBank(Mmu mmu, int bank, int start, int lines) {
+        int window = mmu.windowOf(start);
+        int mask = mmu.getWindowSize() - 1;
+        IntUnaryOperator reader = addr -> mmu.windowOf(addr) == window
+                ? mmu.peekBank(bank, addr & mask)
+                : mem.peekByte(addr);
+        return disassemble(reader, start, lines, String.format("%02X:", bank));
+    }
+
+    private String disassemble(IntUnaryOperator reader, int start, int lines, String prefix) {
         StringBuilder sb = new StringBuilder();
-        int pc = start;
+        int pc = start & 0xFFFF;
+        IntUnaryOperator bytes = addr -> reader.applyAsInt(addr & 0xFFFF);
 
         for (int i = 0; i < lines; i++) {
-            int opcode = mem.readByte(pc);
+            int opcode = bytes.applyAsInt(pc);
+            int ops = pc + 1; // premier octet d'opérande
+            if (opcode == Instruction.PAGE2 || opcode == Instruction.PAGE3) {
+                opcode = (opcode << 8) | bytes.applyAsInt(pc + 1);
+                ops++;
+            }
             Instruction instr = cpu.getInstruction(opcode);
 
             if (instr == null) {
-                sb.append(String.format("%04X: %02X        ???\n", pc, opcode));
+                sb.append(String.format("%s%04X: %02X        ???\n", prefix, pc, bytes.applyAsInt(pc)));
                 pc++;
                 continue;
             }
@@ -32,29 +58,45 @@ public class Disassembler6809 {
 
             switch (instr.getMode()) {
                 case IMMEDIATE8: {
-                    int v = mem.readByte(pc + 1);
+                    int v = bytes.applyAsInt(ops);
                     operand = String.format("#$%02X", v);
                     break;
                 }
                 case IMMEDIATE16: {
-                    int hi = mem.readByte(pc + 1);
-                    int lo = mem.readByte(pc + 2);
+                    int hi = bytes.applyAsInt(ops);
+                    int lo = bytes.applyAsInt(ops + 1);
                     operand = String.format("#$%04X", (hi << 8) | lo);
                     break;
                 }
                 case DIRECT: {
-                    int addr = mem.readByte(pc + 1);
+                    int addr = bytes.applyAsInt(ops);
                     operand = String.format("$%02X", addr);
                     break;
                 }
                 case EXTENDED: {
-                    int hi = mem.readByte(pc + 1);
-                    int lo = mem.readByte(pc + 2);
+                    int hi = bytes.applyAsInt(ops);
+                    int lo = bytes.applyAsInt(ops + 1);
                     operand = String.format("$%04X", (hi << 8) | lo);
                     break;
                 }
                 case INDEXED: {
-                    operand = ",X"; // version simple (on améliorera après)
+                    // octets d'offset donnés par la table des postbytes
+                    int post = bytes.applyAsInt(ops);
+                    int extra = IndexedPostbyte.extraBytes(IndexedPostbyte.entry(post));
+                    int offset = 0;
+                    for (int k = 1; k <= extra; k++) offset = (offset << 8) | bytes.applyAsInt(ops + k);
+                    size += extra;
+                    operand = IndexedPostbyte.format(post, offset, pc + size);
+                    break;
+                }
+                case RELATIVE8: {
+                    int target = (pc + size + (byte) bytes.applyAsInt(ops)) & 0xFFFF;
+                    operand = String.format("$%04X", target);
+                    break;
+                }
+                case RELATIVE16: {
+                    int offset = (short) ((bytes.applyAsInt(ops) << 8) | bytes.applyAsInt(ops + 1));
+                    operand = String.format("$%04X", (pc + size + offset) & 0xFFFF);
                     break;
                 }
                 case INHERENT:
@@ -63,13 +105,13 @@ public class Disassembler6809 {
             }
 
             sb.append(String.format(
-                "%04X: ",
-                pc
+                "%s%04X: ",
+                prefix, pc
             ));
 
             // Affichage des octets machine
             for (int b = 0; b < size; b++) {
-                sb.append(String.format("%02X ", mem.readByte(pc + b)));
+                sb.append(String.format("%02X ", bytes.applyAsInt(pc + b)));
             }
 
             sb.append(String.format(
@@ -78,7 +120,7 @@ public class Disassembler6809 {
                 operand
             ));
 
-            pc += size;
+            pc = (pc + size) & 0xFFFF;
         }
 
         return sb.toString();
@@ -2,6 +2,7 @@ package debugger;
 
 import cpu.CPU6809;
 import memory.Memory;
+import memory.Mmu;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -11,6 +12,9 @@ public class Debugger {
     private final CPU6809 cpu;
     private final Memory mem;
 
+    // MMU éventuelle : les dumps indiquent la banque de chaque ligne
+    private Mmu mmu;
+
     // Liste des breakpoints
     private final Set<Integer> breakpoints = new HashSet<>();
 
@@ -22,6 +26,10 @@ public class Debugger {
         this.mem = mem;
     }
 
+    public void setMmu(Mmu mmu) {
+        this.mmu = mmu;
+    }
+
     
     // BREAKPOINTS
 
@@ -61,25 +69,37 @@ public class Debugger {
         running = true;
         System.out.println("Exécution démarrée");
 
-        while (running) {
+        CPU6809.ExitReason reason = cpu.runUntil(Long.MAX_VALUE, this::isBreakpoint);
 
-            int pc = cpu.getPC();
-            if (isBreakpoint(pc)) {
-                System.out.println(" Breakpoint atteint @ " + hex(pc));
+        switch (reason) {
+            case BREAKPOINT:
+                System.out.println(" Breakpoint atteint @ " + hex(cpu.getPC()));
                 dumpRegisters();
-                running = false;
                 break;
-            }
-
-            cpu.step();
+            case ILLEGAL_OPCODE:
+                System.out.println(" Opcode non implémenté @ " + hex(cpu.getPC())
+                        + " : " + hex8(mem.peekByte(cpu.getPC())));
+                dumpRegisters();
+                break;
+            case HALTED:
+                System.out.println(" CPU arrêté (HALT)");
+                break;
+            case IDLE:
+                System.out.println(" CPU en attente, aucun événement prévu @ " + hex(cpu.getPC()));
+                dumpRegisters();
+                break;
+            default:
+                break;
         }
 
+        running = false;
         System.out.println("Exécution stoppée");
     }
 
     // Arrête l’exécution
     public void stop() {
         running = false;
+        cpu.requestStop();
         System.out.println(" Stop demandé");
     }
 
@@ -100,43 +120,77 @@ public class Debugger {
         System.out.println("-----------------------------");
     }
 
-    // Dump mémoire RAM en HEX 
+    // Dump mémoire RAM en HEX (lecture sans effet de bord sur les ports)
     public void dumpRAM(int start, int length) {
-        start &= 0xFFFF;
         System.out.println("=== RAM Dump ===");
+        dumpCpuView(start, length);
+    }
+
+    public void dumpROM(int start, int length) {
+        System.out.println("=== ROM Dump ===");
+        dumpCpuView(start, length);
+    }
+
+    private void dumpCpuView(int start, int length) {
+        start &= 0xFFFF;
 
         for (int i = 0; i < length; i += 16) {
             int addr = (start + i) & 0xFFFF;
 
             StringBuilder line = new StringBuilder();
+            if (mmu != null) line.append(bankOf(addr)).append(':');
             line.append(hex(addr)).append(": ");
 
             for (int j = 0; j < 16 && (i + j) < length; j++) {
-                int value = mem.readByte((addr + j) & 0xFFFF);
+                int value = mem.peekByte((addr + j) & 0xFFFF);
                 line.append(hex8(value)).append(" ");
             }
 
             System.out.println(line);
         }
-    }public void dumpROM(int start, int length) {
-        start &= 0xFFFF;
-        System.out.println("=== ROM Dump ===");
+    }
 
-        for (int i = 0; i < length; i += 16) {
-            int addr = (start + i) & 0xFFFF;
+    // Banque mappée à l'adresse, « -- » pour une page de périphérique
+    private String bankOf(int addr) {
+        if (mem.getPageType(addr >> 8) == Memory.PageType.DEVICE) return "--";
+        return hex8(mmu.getBank(mmu.windowOf(addr)));
+    }
 
+    // Dump d'une banque, mappée ou non (offset relatif à la banque)
+    public void dumpBank(int bank, int offset, int length) {
+        requireMmu();
+        System.out.println("=== Banque " + hex8(bank) + " ===");
+        int end = Math.min(offset + length, mmu.getWindowSize());
+
+        for (int addr = offset; addr < end; addr += 16) {
             StringBuilder line = new StringBuilder();
-            line.append(hex(addr)).append(": ");
+            line.append(hex8(bank)).append(':').append(hex(addr)).append(": ");
 
-            for (int j = 0; j < 16 && (i + j) < length; j++) {
-                int value = mem.readByte((addr + j) & 0xFFFF);
-                line.append(hex8(value)).append(" ");
+            for (int j = 0; j < 16 && addr + j < end; j++) {
+                line.append(hex8(mmu.peekBank(bank, addr + j))).append(" ");
             }
 
             System.out.println(line);
         }
     }
 
+    // Correspondance fenêtres -> banques
+    public void dumpMmu() {
+        requireMmu();
+        System.out.println("=== MMU ===");
+        for (int w = 0; w < mmu.getWindowCount(); w++) {
+            int bank = mmu.getBank(w);
+            System.out.println(" " + hex(w * mmu.getWindowSize()) + " -> banque " + hex8(bank)
+                    + (mmu.isReadOnly(bank) ? " (ROM)" : ""));
+        }
+    }
+
+    private void requireMmu() {
+        if (mmu == null) {
+            throw new IllegalStateException("Aucune MMU associée au débogueur");
+        }
+    }
+
 
     // FORMATAGE
 
@@ -0,0 +1,251 @@
+package farm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+
+import cpu.CPU6809;
+import memory.Memory;
+
+// Exploration « et si » à partir d'un point de contrôle : la machine est
+// dupliquée (fork, pages partagées en copie à l'écriture) en une
+// référence sans modification et une branche par variante (entrée console,
+// patch mémoire ou registres). Les branches tournent en parallèle et
+// signalent le premier point où leur chemin d'exécution quitte celui de
+// la référence : premier début d'instruction dont le cycle ou le PC
+// diffère de la trace de la référence.
+public final class ForkExplorer implements AutoCloseable {
+
+    // Une variante : modification appliquée à la copie avant exécution
+    public static final class Branch {
+        private final String name;
+        private final BiConsumer<CPU6809, Memory> patch;
+
+        public Branch(String name, BiConsumer<CPU6809, Memory> patch) {
+            if (patch == null) {
+                throw new IllegalArgumentException("Patch absent pour la branche " + name);
+            }
+            this.name = name;
+            this.patch = patch;
+        }
+
+        public String getName() { return name; }
+        public BiConsumer<CPU6809, Memory> getPatch() { return patch; }
+    }
+
+    // Résultat d'une branche ; la copie reste disponible pour inspection
+    public static final class Outcome {
+        private final Branch branch;                 // null : référence
+        private final CPU6809 cpu;
+        private final Memory memory;
+        private final CPU6809.ExitReason reason;     // null si exception
+        private final long divergenceCycle;          // -1 : même chemin
+        private final int divergencePC;
+        private final int referencePC;
+        private final String error;
+
+        Outcome(Branch branch, CPU6809 cpu, Memory memory, CPU6809.ExitReason reason,
+                long divergenceCycle, int divergencePC, int referencePC, String error) {
+            this.branch = branch;
+            this.cpu = cpu;
+            this.memory = memory;
+            this.reason = reason;
+            this.divergenceCycle = divergenceCycle;
+            this.divergencePC = divergencePC;
+            this.referencePC = referencePC;
+            this.error = error;
+        }
+
+        public Branch getBranch() { return branch; }
+        public String getName() { return branch == null ? "référence" : branch.getName(); }
+        public CPU6809 getCpu() { return cpu; }
+        public Memory getMemory() { return memory; }
+        public CPU6809.ExitReason getReason() { return reason; }
+        public String getError() { return error; }
+
+        public boolean hasDiverged() { return divergenceCycle >= 0; }
+        public long getDivergenceCycle() { return divergenceCycle; }
+        public int getDivergencePC() { return divergencePC; }
+        public int getReferencePC() { return referencePC; }   // -1 : trace de référence terminée
+
+        @Override
+        public String toString() {
+            String where = !hasDiverged() ? "même chemin"
+                    : String.format("divergence au cycle %d : PC=%04X, référence %s", divergenceCycle,
+                            divergencePC, referencePC < 0 ? "terminée" : String.format("%04X", referencePC));
+            return String.format("%s : %s, %s, %d cycles%s", getName(), where, reason, cpu.getCycles(),
+                    error == null ? "" : " (" + error + ")");
+        }
+    }
+
+    // Exécution de la référence : (cycle, PC) de chaque début d'instruction
+    private static final class Trace {
+        private long[] cycles = new long[1024];
+        private int[] pcs = new int[1024];
+        private int size;
+        private final int limit;
+
+        Trace(int limit) {
+            this.limit = limit;
+        }
+
+        // false une fois la limite atteinte
+        boolean add(long cycle, int pc) {
+            if (size == limit) return false;
+            if (size == cycles.length) {
+                int capacity = (int) Math.min(limit, 2L * size);
+                cycles = Arrays.copyOf(cycles, capacity);
+                pcs = Arrays.copyOf(pcs, capacity);
+            }
+            cycles[size] = cycle;
+            pcs[size] = pc;
+            size++;
+            return true;
+        }
+
+        long lastCycle() {
+            return size == 0 ? -1 : cycles[size - 1];
+        }
+
+        // Index de l'instruction commençant à cycle, ou -(point d'insertion) - 1
+        int find(long cycle) {
+            return Arrays.binarySearch(cycles, 0, size, cycle);
+        }
+
+        int pcAtOrAfter(long cycle) {
+            int i = find(cycle);
+            if (i < 0) i = -i - 1;
+            return i < size ? pcs[i] : -1;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int traceLimit;
+
+    public ForkExplorer() {
+        this(Runtime.getRuntime().availableProcessors(), 1 << 20);
+    }
+
+    // traceLimit : instructions de la référence suivies ; au-delà, les
+    // branches tournent sans comparaison
+    public ForkExplorer(int parallelism, int traceLimit) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallélisme invalide : " + parallelism);
+        }
+        if (traceLimit <= 0) {
+            throw new IllegalArgumentException("Longueur de trace invalide : " + traceLimit);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.traceLimit = traceLimit;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // Duplique (cpu, memory), exécute la référence puis toutes les branches
+    // sur budget cycles. La machine d'origine n'est pas modifiée et ne doit
+    // pas tourner pendant l'appel. Premier résultat : la référence
+    public List<Outcome> explore(CPU6809 cpu, Memory memory, long budget, List<Branch> branches) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget de cycles invalide : " + budget);
+        }
+
+        // toutes les copies sont prises sur le thread appelant, avant le
+        // lancement : les pages partagées ne sont plus écrites en place
+        Memory refMemory = memory.fork();
+        CPU6809 refCpu = cpu.fork(refMemory);
+        List<Memory> memories = new ArrayList<>(branches.size());
+        List<CPU6809> cpus = new ArrayList<>(branches.size());
+        for (int i = 0; i < branches.size(); i++) {
+            Memory m = memory.fork();
+            memories.add(m);
+            cpus.add(cpu.fork(m));
+        }
+
+        Trace trace = new Trace(traceLimit);
+        Outcome reference = runReference(refCpu, refMemory, budget, trace);
+
+        List<CompletableFuture<Outcome>> pending = new ArrayList<>(branches.size());
+        for (int i = 0; i < branches.size(); i++) {
+            Branch branch = branches.get(i);
+            CPU6809 c = cpus.get(i);
+            Memory m = memories.get(i);
+            pending.add(CompletableFuture.supplyAsync(() -> runBranch(branch, c, m, budget, trace), pool));
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(branches.size() + 1);
+        outcomes.add(reference);
+        for (CompletableFuture<Outcome> f : pending) {
+            outcomes.add(f.join());
+        }
+        return Collections.unmodifiableList(outcomes);
+    }
+
+    // La référence enregistre sa trace ; le moteur SWITCH teste le prédicat
+    // exactement une fois par instruction, dans l'ordre
+    private static Outcome runReference(CPU6809 cpu, Memory memory, long budget, Trace trace) {
+        CPU6809.Engine engine = cpu.getEngine();
+        cpu.setEngine(CPU6809.Engine.SWITCH);
+        CPU6809.ExitReason reason = null;
+        String error = null;
+        try {
+            boolean[] full = {false};
+            reason = cpu.runUntil(budget, pc -> {
+                if (!full[0] && !trace.add(cpu.getCycles(), pc)) full[0] = true;
+                return false;
+            });
+        } catch (RuntimeException e) {
+            error = e.toString();
+        } finally {
+            cpu.setEngine(engine);
+        }
+        return new Outcome(null, cpu, memory, reason, -1, -1, -1, error);
+    }
+
+    private static Outcome runBranch(Branch branch, CPU6809 cpu, Memory memory, long budget, Trace trace) {
+        long end = cpu.getCycles() + budget;
+        long divergence = -1;
+        int divergencePC = -1;
+        int referencePC = -1;
+        CPU6809.ExitReason reason = null;
+        String error = null;
+
+        try {
+            branch.getPatch().accept(cpu, memory);
+
+            // arrêt au premier début d'instruction absent de la trace ou
+            // avec un autre PC (le moteur de blocs teste aussi des PC à
+            // venir pour ses boucles d'attente : un faux positif ne fait
+            // que désactiver le saut d'itérations)
+            long last = trace.lastCycle();
+            IntPredicate diverged = pc -> {
+                long c = cpu.getCycles();
+                if (c > last) return false;
+                int i = trace.find(c);
+                return i < 0 || trace.pcs[i] != pc;
+            };
+            reason = cpu.runUntil(budget, diverged);
+
+            if (reason == CPU6809.ExitReason.BREAKPOINT && cpu.getCycles() < end) {
+                divergence = cpu.getCycles();
+                divergencePC = cpu.getPC();
+                referencePC = trace.pcAtOrAfter(divergence);
+                reason = cpu.run(end - cpu.getCycles());
+            }
+        } catch (RuntimeException e) {
+            error = e.toString();
+        }
+        return new Outcome(branch, cpu, memory, reason, divergence, divergencePC, referencePC, error);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,280 @@
+package farm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import cpu.CPU6809;
+import memory.Memory;
+
+// Multiplexage de simulateurs interactifs sur quelques threads porteurs :
+// chaque session prête reçoit à son tour un quantum de cycles (tourniquet).
+// Une session en attente d'entrée (CPU idle sans événement prévu) ou
+// arrêtée par HALT est parquée et ne consomme plus de thread jusqu'à
+// inputArrived() / release().
+public final class SessionScheduler implements AutoCloseable {
+
+    public enum State {
+        READY,          // dans la file des prêtes
+        RUNNING,        // quantum en cours sur un porteur
+        WAITING_INPUT,  // parquée jusqu'à inputArrived()
+        HALTED,         // parquée jusqu'à release()
+        PAUSED,         // pause demandée par l'hôte
+        STOPPED,        // opcode illégal ou exception
+        CLOSED
+    }
+
+    public final class Session {
+        private final String name;
+        private final CPU6809 cpu;
+        private final Memory memory;
+
+        private State state = State.PAUSED;
+        private boolean queued;          // présente dans la file des prêtes
+        private boolean wakePending;     // entrée arrivée pendant le quantum
+        private boolean pauseRequested;
+        private String error;
+
+        // Mesures
+        private long readySince;
+        private long quanta;
+        private long cycles;
+        private long runNanos;
+        private long totalLatency;
+        private long maxLatency;
+
+        private Session(String name, CPU6809 cpu, Memory memory) {
+            this.name = name;
+            this.cpu = cpu;
+            this.memory = memory;
+        }
+
+        public String getName() { return name; }
+        public CPU6809 getCpu() { return cpu; }
+        public Memory getMemory() { return memory; }
+        public synchronized State getState() { return state; }
+        public synchronized String getError() { return error; }
+
+        // Quanta exécutés, cycles émulés et temps hôte passé à exécuter
+        public synchronized long getQuanta() { return quanta; }
+        public synchronized long getCycles() { return cycles; }
+        public synchronized long getRunNanos() { return runNanos; }
+
+        // Latence : attente dans la file entre « prête » et le début du quantum
+        public synchronized long getMaxLatencyNanos() { return maxLatency; }
+        public synchronized long getAverageLatencyNanos() {
+            return quanta == 0 ? 0 : totalLatency / quanta;
+        }
+
+        public synchronized void start() {
+            if (state == State.PAUSED || state == State.STOPPED) {
+                error = null;
+                makeReady();
+            }
+        }
+
+        // Effective à la fin du quantum en cours
+        public synchronized void pause() {
+            if (state == State.RUNNING) {
+                pauseRequested = true;
+                cpu.requestStop();
+            } else if (state != State.CLOSED && state != State.STOPPED) {
+                state = State.PAUSED;
+            }
+        }
+
+        // À appeler quand une donnée arrive pour le ConsoleInProvider de la session
+        public synchronized void inputArrived() {
+            memory.inputChanged();
+            if (state == State.WAITING_INPUT) {
+                makeReady();
+            } else if (state == State.RUNNING) {
+                wakePending = true;
+            }
+        }
+
+        // Relâche la ligne HALT
+        public synchronized void release() {
+            cpu.setHalted(false);
+            if (state == State.HALTED) makeReady();
+        }
+
+        public synchronized void close() {
+            if (state == State.RUNNING) cpu.requestStop();
+            state = State.CLOSED;
+            sessions.remove(this);
+        }
+
+        private void makeReady() {
+            state = State.READY;
+            readySince = System.nanoTime();
+            if (!queued) {
+                queued = true;
+                ready.add(this);
+            }
+        }
+
+        // Un quantum sur le thread porteur courant
+        private void runQuantum() {
+            long start = System.nanoTime();
+            synchronized (this) {
+                queued = false;
+                if (state != State.READY) return; // pausée ou fermée dans la file
+                state = State.RUNNING;
+                wakePending = false;
+                long latency = start - readySince;
+                totalLatency += latency;
+                if (latency > maxLatency) maxLatency = latency;
+            }
+
+            long before = cpu.getCycles();
+            CPU6809.ExitReason reason = null;
+            String failure = null;
+            try {
+                reason = cpu.run(quantum);
+            } catch (RuntimeException e) {
+                failure = e.toString();
+            }
+            long end = System.nanoTime();
+
+            synchronized (this) {
+                quanta++;
+                cycles += cpu.getCycles() - before;
+                runNanos += end - start;
+
+                if (state == State.CLOSED) return;
+                if (pauseRequested) {
+                    pauseRequested = false;
+                    state = State.PAUSED;
+                    return;
+                }
+                if (failure != null || reason == CPU6809.ExitReason.ILLEGAL_OPCODE) {
+                    error = failure != null ? failure
+                            : String.format("Opcode non implémenté @ %04X", cpu.getPC());
+                    state = State.STOPPED;
+                    return;
+                }
+
+                switch (reason) {
+                    case HALTED:
+                        if (cpu.isHalted()) state = State.HALTED;
+                        else makeReady();
+                        break;
+                    case STOP_REQUESTED:
+                        state = State.PAUSED;
+                        break;
+                    case IDLE:
+                        parkOrContinue();
+                        break;
+                    default:
+                        if (cpu.isIdle()) parkOrContinue();
+                        else makeReady();
+                }
+            }
+        }
+
+        // CPU en attente d'une entrée : parquée, sauf si une entrée est
+        // arrivée pendant le quantum
+        private void parkOrContinue() {
+            if (wakePending) {
+                wakePending = false;
+                makeReady();
+            } else {
+                state = State.WAITING_INPUT;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s : %s, %d quanta, %d cycles, latence moy. %.1f us / max %.1f us",
+                    name, state, quanta, cycles, getAverageLatencyNanos() / 1e3, maxLatency / 1e3);
+        }
+    }
+
+    private final long quantum;
+    private final LinkedBlockingQueue<Session> ready = new LinkedBlockingQueue<>();
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final List<Thread> carriers = new ArrayList<>();
+    private volatile boolean closed;
+
+    public SessionScheduler() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 20_000);
+    }
+
+    // carriers : nombre de threads porteurs ; quantum : cycles par tour
+    public SessionScheduler(int carrierCount, long quantum) {
+        if (carrierCount <= 0) {
+            throw new IllegalArgumentException("Nombre de threads porteurs invalide : " + carrierCount);
+        }
+        if (quantum <= 0) {
+            throw new IllegalArgumentException("Quantum invalide : " + quantum);
+        }
+        this.quantum = quantum;
+        for (int i = 0; i < carrierCount; i++) {
+            Thread t = new Thread(this::carry, "6809-session-" + i);
+            t.setDaemon(true);
+            carriers.add(t);
+            t.start();
+        }
+    }
+
+    // Nouvelle session, en pause : start() la rend prête
+    public Session open(String name, CPU6809 cpu, Memory memory) {
+        if (closed) {
+            throw new IllegalStateException("Ordonnanceur fermé");
+        }
+        Session s = new Session(name, cpu, memory);
+        sessions.add(s);
+        return s;
+    }
+
+    public List<Session> getSessions() {
+        return Collections.unmodifiableList(sessions);
+    }
+
+    public long getQuantum() {
+        return quantum;
+    }
+
+    public int getCarrierCount() {
+        return carriers.size();
+    }
+
+    // Indice d'équité de Jain sur le temps d'exécution des sessions
+    // exécutables (les parquées ne demandent rien) : 1 = partage parfait,
+    // 1/n = une seule session servie
+    public double fairnessIndex() {
+        double sum = 0;
+        double squares = 0;
+        int n = 0;
+        for (Session s : sessions) {
+            State state = s.getState();
+            if (state != State.READY && state != State.RUNNING) continue;
+            long t = s.getRunNanos();
+            sum += t;
+            squares += (double) t * t;
+            n++;
+        }
+        // aucune session servie pour l'instant : partage égal (0 / 0 sinon)
+        return squares == 0 ? 1.0 : (sum * sum) / (n * squares);
+    }
+
+    private void carry() {
+        try {
+            while (!closed) {
+                ready.take().runQuantum();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Session s : sessions) s.close();
+        for (Thread t : carriers) t.interrupt();
+    }
+}
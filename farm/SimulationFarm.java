@@ -0,0 +1,194 @@
+package farm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import cpu.CPU6809;
+import memory.Memory;
+import memory.RomImage;
+
+// Ferme de simulation : exécute des milliers de jobs indépendants sur un
+// pool à vol de tâches (un thread par cœur par défaut). Chaque job est une
+// tâche séparée : un job lent n'occupe qu'un thread, les autres continuent.
+// Chaque thread garde sa paire CPU6809 + Memory et la réutilise
+// (effacement, chargement, reset) d'un job à l'autre. Les ROM des jobs
+// sont des RomImage partagées par toutes les instances : chaque mémoire
+// ne possède que les pages RAM que son job écrit.
+public final class SimulationFarm implements AutoCloseable {
+
+    // Résultat d'un job
+    public static final class Result {
+        private final SimulationJob job;
+        private final CPU6809.ExitReason reason; // null si exception
+        private final long cycles;
+        private final boolean passed;
+        private final String error;
+        private final long nanos;
+
+        Result(SimulationJob job, CPU6809.ExitReason reason, long cycles,
+               boolean passed, String error, long nanos) {
+            this.job = job;
+            this.reason = reason;
+            this.cycles = cycles;
+            this.passed = passed;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public SimulationJob getJob() { return job; }
+        public CPU6809.ExitReason getReason() { return reason; }
+        public long getCycles() { return cycles; }
+        public boolean isPassed() { return passed; }
+        public String getError() { return error; }
+        public long getNanos() { return nanos; }
+
+        @Override
+        public String toString() {
+            return String.format("%s : %s, %s, %d cycles en %.3f ms%s",
+                    job.getName(), passed ? "OK" : "ÉCHEC", reason, cycles, nanos / 1e6,
+                    error == null ? "" : " (" + error + ")");
+        }
+    }
+
+    // Résultats dans l'ordre des jobs et débit global
+    public static final class Report {
+        private final List<Result> results;
+        private final long wallNanos;
+        private final long totalCycles;
+        private final int passed;
+
+        Report(List<Result> results, long wallNanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.wallNanos = wallNanos;
+            long cycles = 0;
+            int ok = 0;
+            for (Result r : results) {
+                cycles += r.getCycles();
+                if (r.isPassed()) ok++;
+            }
+            this.totalCycles = cycles;
+            this.passed = ok;
+        }
+
+        public List<Result> getResults() { return results; }
+        public long getWallNanos() { return wallNanos; }
+        public long getTotalCycles() { return totalCycles; }
+        public int getPassed() { return passed; }
+        public int getFailed() { return results.size() - passed; }
+
+        public double cyclesPerSecond() {
+            return wallNanos == 0 ? 0 : totalCycles * 1e9 / wallNanos;
+        }
+
+        public double jobsPerSecond() {
+            return wallNanos == 0 ? 0 : results.size() * 1e9 / wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d jobs (%d OK, %d échecs) en %.3f s : %.1f Mcycles/s, %.1f jobs/s",
+                    results.size(), passed, getFailed(), wallNanos / 1e9,
+                    cyclesPerSecond() / 1e6, jobsPerSecond());
+        }
+    }
+
+    // Paire CPU + Memory propre à un thread du pool
+    private static final class Worker {
+        final Memory memory = new Memory();
+        final CPU6809 cpu = new CPU6809(memory);
+        List<RomImage> roms = Collections.emptyList();   // mappées par le job précédent
+    }
+
+    private final ForkJoinPool pool;
+    private final CPU6809.Engine engine;
+    private final boolean exactCycles;
+    private final ThreadLocal<Worker> workers;
+
+    public SimulationFarm() {
+        this(Runtime.getRuntime().availableProcessors(), CPU6809.Engine.BLOCK, false);
+    }
+
+    public SimulationFarm(int parallelism, CPU6809.Engine engine, boolean exactCycles) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallélisme invalide : " + parallelism);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.engine = engine;
+        this.exactCycles = exactCycles;
+        this.workers = ThreadLocal.withInitial(() -> {
+            Worker w = new Worker();
+            w.cpu.setEngine(engine);
+            w.cpu.setExactCycles(exactCycles);
+            return w;
+        });
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public CPU6809.Engine getEngine() {
+        return engine;
+    }
+
+    public boolean isExactCycles() {
+        return exactCycles;
+    }
+
+    // Exécute tous les jobs et attend la fin du dernier
+    public Report run(Stream<SimulationJob> jobs) {
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Result>> pending = new ArrayList<>();
+        jobs.forEach(job -> pending.add(CompletableFuture.supplyAsync(() -> execute(job), pool)));
+
+        List<Result> results = new ArrayList<>(pending.size());
+        for (CompletableFuture<Result> f : pending) {
+            results.add(f.join());
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    public Report run(List<SimulationJob> jobs) {
+        return run(jobs.stream());
+    }
+
+    private Result execute(SimulationJob job) {
+        Worker w = workers.get();
+        Memory memory = w.memory;
+        CPU6809 cpu = w.cpu;
+        long start = System.nanoTime();
+
+        try {
+            if (!w.roms.equals(job.getRoms())) {
+                for (RomImage rom : w.roms) rom.unmapFrom(memory);
+                w.roms = job.getRoms();
+            }
+            memory.clearMemory();
+            // remappées à chaque job : une page copiée par le précédent redevient l'image
+            for (RomImage rom : w.roms) rom.mapInto(memory);
+            memory.loadProgram(job.getImage(), job.getLoadAddress());
+            cpu.reset();
+            if (job.getRegisters() != null) job.getRegisters().accept(cpu);
+
+            CPU6809.ExitReason reason = cpu.run(job.getBudget());
+            boolean passed = job.getExpected() == null || job.getExpected().test(cpu, memory);
+            return new Result(job, reason, cpu.getCycles(), passed, null, System.nanoTime() - start);
+        } catch (VirtualMachineError e) {
+            // mémoire épuisée, erreur interne de la JVM : la ferme s'arrête
+            throw e;
+        } catch (Throwable e) {
+            // erreur du job (opcode, postbyte, prédicat, assertion) : les autres continuent
+            return new Result(job, null, cpu.getCycles(), false, e.toString(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,91 @@
+package farm;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+import cpu.CPU6809;
+import memory.Memory;
+import memory.RomImage;
+
+// Une exécution indépendante : ROM partagées, image chargée en mémoire,
+// registres initiaux, budget de cycles et prédicat sur l'état final.
+public final class SimulationJob {
+
+    private final String name;
+    private final byte[] image;
+    private final int loadAddress;
+    private final Consumer<CPU6809> registers;              // après reset et chargement ; null : vecteur RESET
+    private final long budget;
+    private final BiPredicate<CPU6809, Memory> expected;    // null : toujours réussi
+    private final List<RomImage> roms;                      // mappées avant le chargement
+
+    public SimulationJob(String name,
+                         byte[] image,
+                         int loadAddress,
+                         Consumer<CPU6809> registers,
+                         long budget,
+                         BiPredicate<CPU6809, Memory> expected) {
+        this(name, Collections.emptyList(), image, loadAddress, registers, budget, expected);
+    }
+
+    public SimulationJob(String name,
+                         List<RomImage> roms,
+                         byte[] image,
+                         int loadAddress,
+                         Consumer<CPU6809> registers,
+                         long budget,
+                         BiPredicate<CPU6809, Memory> expected) {
+
+        if (image == null) {
+            throw new IllegalArgumentException("Image absente pour le job " + name);
+        }
+        if (roms == null) {
+            throw new IllegalArgumentException("Liste de ROM absente pour le job " + name);
+        }
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget de cycles invalide pour le job " + name + " : " + budget);
+        }
+        this.name = name;
+        this.image = image;
+        this.loadAddress = loadAddress & 0xFFFF;
+        this.registers = registers;
+        this.budget = budget;
+        this.expected = expected;
+        this.roms = Collections.unmodifiableList(roms);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] getImage() {
+        return image;
+    }
+
+    public int getLoadAddress() {
+        return loadAddress;
+    }
+
+    public Consumer<CPU6809> getRegisters() {
+        return registers;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public BiPredicate<CPU6809, Memory> getExpected() {
+        return expected;
+    }
+
+    public List<RomImage> getRoms() {
+        return roms;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d octets @ %04X, budget=%d)", name, image.length, loadAddress, budget);
+    }
+}
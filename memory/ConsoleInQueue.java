@@ -0,0 +1,138 @@
+package memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+
+// Entrée console non bloquante : les sources de l'hôte (touches de la
+// GUI, socket, script) déposent des octets, en bloc, dans un anneau sans
+// verrou (un producteur, un consommateur) ; le CPU les lit en FF01 sans
+// jamais attendre. FF02 bit 0 indique qu'une donnée est disponible. File
+// vide : FF01 renvoie la dernière valeur lue et ne compte pas comme une
+// entrée neuve, la boucle d'attente du programme peut donc être sautée
+// (moteurs BLOCK/TIERED) jusqu'au prochain dépôt.
+//
+// Plusieurs sources à la fois sont sérialisées par le verrou de la file,
+// que le CPU ne prend jamais.
+//
+//     ConsoleInQueue in = new ConsoleInQueue(memory);
+//     memory.setConsoleInProvider(in);
+//     in.offer("RUN\r");
+public final class ConsoleInQueue implements Memory.ConsoleInProvider {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(ConsoleInQueue.class, "head", long.class);
+            TAIL = lookup.findVarHandle(ConsoleInQueue.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Memory memory;
+    private final byte[] ring;
+    private final int mask;
+
+    // Positions cumulées : head avancée par le CPU, tail par le producteur
+    // (publiées en release, lues en acquire)
+    private long head;
+    private long tail;
+
+    private long cachedHead;            // côté producteur
+    private byte last;                  // dernière valeur lue en FF01
+
+    // Prévenu après chaque dépôt (ex. Session::inputArrived pour réveiller
+    // une session parquée)
+    private volatile Runnable inputListener;
+
+    public ConsoleInQueue(Memory memory) {
+        this(memory, 4096);
+    }
+
+    // capacity : puissance de 2
+    public ConsoleInQueue(Memory memory, int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacité invalide (puissance de 2) : " + capacity);
+        }
+        this.memory = memory;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public void setInputListener(Runnable l) {
+        this.inputListener = l;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    // Octets en attente (lisible de n'importe quel thread)
+    public int available() {
+        return (int) ((long) TAIL.getAcquire(this) - (long) HEAD.getAcquire(this));
+    }
+
+    // PRODUCTEURS (hôte)
+
+    // Dépose ce qui tient dans la file ; renvoie le nombre d'octets
+    // acceptés (0 : file pleine), sans attendre
+    public synchronized int offer(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IllegalArgumentException("Plage invalide : " + offset + "+" + length);
+        }
+        long t = tail;
+        if (t + length - cachedHead > ring.length) {
+            cachedHead = (long) HEAD.getAcquire(this);
+        }
+        int n = (int) Math.min(length, ring.length - (t - cachedHead));
+        if (n == 0) return 0;
+
+        int from = (int) t & mask;
+        int first = Math.min(n, ring.length - from);
+        System.arraycopy(bytes, offset, ring, from, first);
+        System.arraycopy(bytes, offset + first, ring, 0, n - first);
+        TAIL.setRelease(this, t + n);
+
+        // après publication : une boucle d'attente en cours voit l'entrée
+        memory.inputChanged();
+        Runnable l = inputListener;
+        if (l != null) l.run();
+        return n;
+    }
+
+    public boolean offer(byte b) {
+        return offer(new byte[] {b}, 0, 1) == 1;
+    }
+
+    // Texte en ISO-8859-1 (un octet par caractère)
+    public int offer(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        return offer(bytes, 0, bytes.length);
+    }
+
+    // CONSOMMATEUR (thread du CPU)
+
+    // Aussi appelée par peekByte(FF02) depuis d'autres threads : sans état
+    @Override
+    public boolean hasInput() {
+        return available() > 0;
+    }
+
+    @Override
+    public byte readConsoleIn() {
+        if (!hasInput()) return last;
+        long h = head;
+        last = ring[(int) h & mask];
+        HEAD.setRelease(this, h + 1);
+        return last;
+    }
+
+    // Vide la file (thread du CPU ou CPU arrêté)
+    public void clear() {
+        HEAD.setRelease(this, (long) TAIL.getAcquire(this));
+    }
+}
@@ -0,0 +1,183 @@
+package memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Sortie console découplée de l'émulation : le CPU dépose chaque octet
+// écrit en FF00 dans un anneau sans verrou (un producteur, un
+// consommateur) et un thread de livraison les remet au listener par lots
+// (onConsoleOut(byte[], int, int)). Un lot part quand il atteint
+// batchSize octets, à chaque fin de ligne, ou au plus tard maxDelayMillis
+// après l'écriture. Un consommateur lent ne ralentit pas le CPU : anneau
+// plein, les octets sont perdus et comptés (DROP) ou le CPU attend (BLOCK).
+//
+//     ConsoleOutBuffer out = new ConsoleOutBuffer(listener);
+//     memory.setConsoleOutListener(out);
+public final class ConsoleOutBuffer implements Memory.ConsoleOutListener, AutoCloseable {
+
+    public enum Overflow { DROP, BLOCK }
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(ConsoleOutBuffer.class, "head", long.class);
+            TAIL = lookup.findVarHandle(ConsoleOutBuffer.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Memory.ConsoleOutListener target;
+    private final byte[] ring;
+    private final int mask;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Overflow overflow;
+    private final Thread delivery;
+
+    // Positions cumulées : head lue par le consommateur, tail écrite par
+    // le producteur (publiées en release, lues en acquire)
+    private long head;
+    private long tail;
+
+    // Côté producteur seulement
+    private long cachedHead;
+    private long signaled;              // tail au dernier réveil du thread
+
+    private volatile boolean parked;
+    private volatile boolean closed;
+    private volatile long dropped;
+
+    public ConsoleOutBuffer(Memory.ConsoleOutListener target) {
+        this(target, 1 << 16, 4096, 20, Overflow.DROP);
+    }
+
+    // capacity : puissance de 2
+    public ConsoleOutBuffer(Memory.ConsoleOutListener target, int capacity, int batchSize,
+                            long maxDelayMillis, Overflow overflow) {
+        if (target == null) {
+            throw new IllegalArgumentException("Listener de sortie console absent");
+        }
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacité invalide (puissance de 2) : " + capacity);
+        }
+        if (batchSize <= 0 || batchSize > capacity) {
+            throw new IllegalArgumentException("Taille de lot invalide : " + batchSize);
+        }
+        if (maxDelayMillis <= 0) {
+            throw new IllegalArgumentException("Délai de livraison invalide : " + maxDelayMillis);
+        }
+        this.target = target;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.overflow = overflow;
+        this.delivery = new Thread(this::deliver, "6809-console-out");
+        delivery.setDaemon(true);
+        delivery.start();
+    }
+
+    public int getCapacity() { return ring.length; }
+    public int getBatchSize() { return batchSize; }
+    public Overflow getOverflow() { return overflow; }
+
+    // Octets perdus sur anneau plein (DROP)
+    public long getDropped() {
+        return dropped;
+    }
+
+    // Octets déposés et pas encore livrés
+    public int getPending() {
+        return (int) ((long) TAIL.getAcquire(this) - (long) HEAD.getAcquire(this));
+    }
+
+    // PRODUCTEUR (thread du CPU)
+
+    @Override
+    public void onConsoleOut(byte b) {
+        long t = tail;
+        if (t - cachedHead == ring.length) {
+            cachedHead = (long) HEAD.getAcquire(this);
+            if (t - cachedHead == ring.length && !waitForSpace(t)) {
+                dropped++;
+                return;
+            }
+        }
+        ring[(int) t & mask] = b;
+        TAIL.setRelease(this, t + 1);
+        if (b == '\n' || t + 1 - signaled >= batchSize) {
+            signaled = t + 1;
+            wake();
+        }
+    }
+
+    // BLOCK : attend que le thread de livraison libère de la place
+    private boolean waitForSpace(long t) {
+        if (overflow == Overflow.DROP || closed) return false;
+        while (t - cachedHead == ring.length) {
+            if (closed) return false;
+            wake();
+            LockSupport.parkNanos(10_000);
+            cachedHead = (long) HEAD.getAcquire(this);
+        }
+        return true;
+    }
+
+    private void wake() {
+        if (parked) LockSupport.unpark(delivery);
+    }
+
+    // Livre tout ce qui a été déposé avant l'appel (thread du CPU ou
+    // autre) ; sans effet après close()
+    public void flush() {
+        long t = (long) TAIL.getAcquire(this);
+        while ((long) HEAD.getAcquire(this) < t && delivery.isAlive()) {
+            LockSupport.unpark(delivery);
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    // CONSOMMATEUR (thread de livraison)
+
+    private void deliver() {
+        while (true) {
+            boolean last = closed;
+            long h = head;
+            long t = (long) TAIL.getAcquire(this);
+            if (t != h) {
+                int from = (int) h & mask;
+                int length = (int) Math.min(t - h, ring.length - from);
+                try {
+                    target.onConsoleOut(ring, from, length);
+                } catch (RuntimeException e) {
+                    // un listener défaillant ne doit pas arrêter la livraison
+                }
+                HEAD.setRelease(this, h + length);
+                continue;
+            }
+            if (last) return;
+            // un réveil manqué (course sur parked) coûte au plus maxDelay
+            parked = true;
+            if ((long) TAIL.getAcquire(this) == h && !closed) LockSupport.parkNanos(this, maxDelayNanos);
+            parked = false;
+        }
+    }
+
+    // Livre le reste puis arrête le thread de livraison
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(delivery);
+        try {
+            delivery.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Image mémoire projetée depuis un fichier (FileChannel.map) et attachée à
+// une plage de pages de Memory. Rien n'est lu à l'ouverture : le système
+// charge le fichier à la demande.
+//
+// PRIVATE : copie à l'ouverture. Une page est recopiée dans un tableau
+// RAM à son premier accès par le CPU (puis chemin rapide), le fichier
+// n'est jamais modifié.
+// SHARED : écriture directe. Les pages restent des pages de périphérique
+// qui lisent et écrivent dans la projection : les écritures atteignent le
+// fichier sans étape de sauvegarde (flush() force l'écriture disque),
+// chargeurs et clearMemory() compris. Ni instantané ni fork : le fichier
+// est commun.
+public final class MappedImage implements Memory.Device, Memory.Forkable, Closeable {
+
+    public enum Mode { PRIVATE, SHARED }
+
+    private final Path file;
+    private final Mode mode;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    private Memory memory;
+    private int base = -1;          // adresse d'attache
+
+    public MappedImage(Path file, Mode mode) throws IOException {
+        this.file = file;
+        this.mode = mode;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long length = channel.size();
+        if (length == 0 || length > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IllegalArgumentException("Taille d'image invalide : " + length + " (" + file + ")");
+        }
+        this.size = (int) length;
+        this.buffer = channel.map(mode == Mode.SHARED ? FileChannel.MapMode.READ_WRITE
+                : FileChannel.MapMode.PRIVATE, 0, length);
+    }
+
+    // Copie pour Memory.fork() : même projection, lue seulement (PRIVATE)
+    private MappedImage(MappedImage parent, Memory copy) {
+        this.file = parent.file;
+        this.mode = parent.mode;
+        this.channel = null;
+        this.buffer = parent.buffer;
+        this.size = parent.size;
+        this.memory = copy;
+        this.base = parent.base;
+    }
+
+    public Path getFile() { return file; }
+    public Mode getMode() { return mode; }
+    public int getSize() { return size; }
+
+    // Projette l'image à partir d'une adresse alignée sur une page ; ce qui
+    // dépasse 64 Ko n'est pas visible
+    public void attach(Memory memory, int address) {
+        if ((address & 0xFF) != 0 || address < 0 || address > 0xFFFF) {
+            throw new IllegalArgumentException(
+                    String.format("Adresse d'image non alignée sur une page : %04X", address));
+        }
+        if (this.memory != null) {
+            throw new IllegalStateException("Image déjà attachée : " + file);
+        }
+        this.memory = memory;
+        this.base = address;
+        int end = Math.min(65536, address + size);
+        for (int page = address >> 8; page <= (end - 1) >> 8; page++) {
+            memory.mapDevice(page, this);
+        }
+    }
+
+    // Page privée : copie du fichier dans un tableau RAM à la place de la
+    // page de périphérique
+    private byte[] materialize(int page) {
+        byte[] bytes = new byte[256];
+        int offset = (page << 8) - base;
+        buffer.get(offset, bytes, 0, Math.min(256, size - offset));
+        memory.mapRam(page, bytes);
+        return bytes;
+    }
+
+    private int offset(int addr) {
+        return (addr & 0xFFFF) - base;
+    }
+
+    @Override
+    public int read(int addr) {
+        if (mode == Mode.PRIVATE) return materialize(addr >> 8)[addr & 0xFF] & 0xFF;
+        int off = offset(addr);
+        return off < size ? buffer.get(off) & 0xFF : 0;
+    }
+
+    @Override
+    public void write(int addr, int value) {
+        if (mode == Mode.PRIVATE) {
+            materialize(addr >> 8)[addr & 0xFF] = (byte) value;
+            return;
+        }
+        int off = offset(addr);
+        if (off < size) buffer.put(off, (byte) value);
+    }
+
+    @Override
+    public int peek(int addr) {
+        int off = offset(addr);
+        return off < size ? buffer.get(off) & 0xFF : 0;
+    }
+
+    @Override
+    public void poke(int addr, int value) {
+        write(addr, value);
+    }
+
+    // SHARED : le fichier peut être modifié par un autre processus
+    @Override
+    public boolean isVolatile() {
+        return mode == Mode.SHARED;
+    }
+
+    // Une projection partagée reste commune : la copie n'en serait pas
+    // indépendante
+    @Override
+    public Memory.Device fork(Memory copy) {
+        if (mode == Mode.SHARED) {
+            throw new IllegalStateException("Image partagée non duplicable : " + file);
+        }
+        return new MappedImage(this, copy);
+    }
+
+    // Écrit sur disque les modifications d'une image partagée
+    public void flush() {
+        if (mode == Mode.SHARED) buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (channel != null) channel.close();
+    }
+}
@@ -1,138 +1,872 @@
-package memory;
-
-import java.util.Arrays;
-
-public class Memory {
-
-    private final byte[] mem = new byte[65536]; 
-
-    //Interfaces pour E/S mappées
-    public interface ConsoleOutListener {
-        void onConsoleOut(byte b);
-    }
-
-    public interface ConsoleInProvider {
-        byte readConsoleIn();
-    }
-
-    private ConsoleOutListener consoleOutListener;
-    private ConsoleInProvider consoleInProvider;
-
-    public void setConsoleOutListener(ConsoleOutListener l) {
-        this.consoleOutListener = l;
-    }
-
-    public void setConsoleInProvider(ConsoleInProvider p) {
-        this.consoleInProvider = p;
-    }
-
-    // LECTURE / ÉCRITURE 
-    public int readByte(int addr) {
-        addr &= 0xFFFF;
-
-        // Port d entrée console FF01
-        if (addr == 0xFF01 && consoleInProvider != null) {
-            return consoleInProvider.readConsoleIn() & 0xFF;
-        }
-
-        return mem[addr] & 0xFF;
-    }
-
-    public void writeByte(int addr, int value) {
-        addr &= 0xFFFF;
-        value &= 0xFF;
-
-        // Port de sortie console FF00
-        if (addr == 0xFF00 && consoleOutListener != null) {
-            consoleOutListener.onConsoleOut((byte) value);
-        }
-
-        // on laisse la valeur dans la memoire
-        mem[addr] = (byte) value;
-    }
-
-    // LECTURE / ÉCRITURE 
-    
-    public int readWord(int addr) {
-        addr &= 0xFFFF;
-
-        int high = readByte(addr);
-        int low  = readByte(addr + 1);
-
-        return ((high << 8) | low) & 0xFFFF;
-    }
-
-    public void writeWord(int addr, int value) {
-        addr &= 0xFFFF;
-
-        writeByte(addr, (value >> 8) & 0xFF);     // octet haut
-        writeByte(addr + 1, value & 0xFF);        // octet bas
-    }
-
-    
-    // CHARGER UN PROGRAMME
-   
-    public void loadProgram(byte[] program, int startAddress) {
-        startAddress &= 0xFFFF;
-
-        if (startAddress + program.length > 65536) {
-            throw new IllegalArgumentException(
-                    "Programme trop long, dépassement mémoire.");
-        }
-
-        System.arraycopy(program, 0, mem, startAddress, program.length);
-    }
-
-    
-    // EFFACER LA MEMOIRE COMPLETE
-    
-    public void clearMemory() {
-        Arrays.fill(mem, (byte) 0);
-    }
-
-    
-    // DUMP MEMOIRE 
-    public String memoryDump(int start, int length) {
-        start &= 0xFFFF;
-        int end = Math.min(start + length, 65536);
-
-        StringBuilder sb = new StringBuilder();
-
-        for (int addr = start; addr < end; addr += 16) {
-            sb.append(String.format("%04X : ", addr));
-
-            // octets
-            for (int i = 0; i < 16 && addr + i < end; i++) {
-                sb.append(String.format("%02X ", mem[addr + i] & 0xFF));
-            }
-
-            sb.append(" | ");
-
-            // caracteres
-            for (int i = 0; i < 16 && addr + i < end; i++) {
-                char c = (char) (mem[addr + i] & 0xFF);
-                sb.append((c >= 32 && c <= 126) ? c : '.');
-            }
-
-            sb.append("\n");
-        }
-
-        return sb.toString();
-    }
-
-   
-    // LECTURE multiple 
-    public int[] readBytes(int start, int length) {
-        start &= 0xFFFF;
-        length = Math.min(length, 65536 - start);
-
-        int[] data = new int[length];
-
-        for (int i = 0; i < length; i++) {
-            data[i] = readByte(start + i);
-        }
-
-        return data;
-    }
-}
-
+package memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bus mémoire découpé en 256 pages de 256 octets. Chaque page est de la RAM
+// (tableau direct), de la ROM (tableau en lecture seule) ou un périphérique.
+// Les accès RAM/ROM se résument à un index dans le tableau de la page ;
+// seuls les périphériques, la ROM en écriture, les pages de code
+// surveillées, les pages partagées avec un instantané et la première
+// écriture dans une page propre passent par le chemin lent.
+public class Memory {
+
+    public enum PageType { RAM, ROM, DEVICE }
+
+    // Périphérique mappé sur une page (addr : adresse complète)
+    public interface Device {
+        int read(int addr);
+        void write(int addr, int value);
+
+        // Lecture sans effet de bord (débogueur, désassembleur, dump)
+        default int peek(int addr) { return 0xFF; }
+
+        // Chargement d'image et effacement : écriture sans effet de bord
+        default void poke(int addr, int value) { }
+
+        // true : une lecture peut changer sans écriture du CPU (entrée
+        // extérieure, compteur, autre processus). Une boucle d'attente qui
+        // lit un tel périphérique n'est jamais sautée par le CPU
+        default boolean isVolatile() { return true; }
+    }
+
+    // Périphérique dont l'état interne suit les instantanés de la mémoire
+    public interface Snapshotable {
+        Object saveState();
+        void restoreState(Object state);
+    }
+
+    // Périphérique dupliqué par Memory.fork() : renvoie l'instance propre à
+    // la copie (état recopié, rattaché à copy)
+    public interface Forkable {
+        Device fork(Memory copy);
+    }
+
+    // Instantané : références des pages figées au moment de la prise (la
+    // page est copiée par la première écriture qui suit), plan de mappage
+    // et état des périphériques Snapshotable. Réutilisable à volonté.
+    public static final class Snapshot {
+        private final byte[][] data;
+        private final PageType[] types;
+        private final Device[] devices;
+        private final Map<Device, Object> states;
+
+        private Snapshot(byte[][] data, PageType[] types, Device[] devices, Map<Device, Object> states) {
+            this.data = data;
+            this.types = types;
+            this.devices = devices;
+            this.states = states;
+        }
+    }
+
+    // Table des pages : readPages/writePages non nulles = chemin rapide
+    private final byte[][] readPages = new byte[256][];
+    private final byte[][] writePages = new byte[256][];
+    private final byte[][] data = new byte[256][];
+    private final Device[] devices = new Device[256];
+    private final PageType[] types = new PageType[256];
+
+    // Page RAM/ROM référencée par un instantané, une autre instance ou une
+    // RomImage : copiée avant d'être écrite
+    private final boolean[] shared = new boolean[256];
+
+    // Page d'un périphérique volatil : ses lectures sont comptées
+    private final boolean[] volatilePages = new boolean[256];
+    private int volatileReads;
+
+    // RAM jamais écrite : une seule page de zéros pour toutes les instances,
+    // copiée à la première écriture. Une instance n'alloue que les pages
+    // qu'elle modifie
+    private static final byte[] ZERO_PAGE = new byte[256];
+
+    // Propriétaire des pages (MMU) : prévenu quand une page partagée est
+    // remplacée par sa copie, efface lui-même toutes ses pages physiques
+    interface PageOwner {
+        void pageCopied(int page, byte[] copy);
+        void clearPages();
+    }
+
+    private PageOwner pageOwner;
+
+    // Suivi des modifications : un bit par page (256 bits). Une page propre
+    // quitte le chemin rapide en écriture ; la première écriture la marque
+    // et l'y remet, les suivantes ne coûtent rien. Au départ tout est modifié
+    private final long[] dirtyPages = { -1L, -1L, -1L, -1L };
+
+    // Suivi fin optionnel : un bit par tranche de 4 octets (64 par page).
+    // Actif, toutes les écritures RAM passent par le chemin lent
+    private long[] dirtyGranules;
+
+    // Plages modifiées relevées par takeDirty()
+    public static final class DirtyRegions {
+
+        public static final class Range {
+            private final int start;
+            private final int end;
+
+            Range(int start, int end) {
+                this.start = start;
+                this.end = end;
+            }
+
+            public int getStart() { return start; }
+            public int getEnd() { return end; }      // exclue
+            public int getLength() { return end - start; }
+
+            @Override
+            public String toString() {
+                return String.format("%04X-%04X", start, end - 1);
+            }
+        }
+
+        private final long[] pages;
+        private final List<Range> ranges;
+
+        private DirtyRegions(long[] pages, long[] granules) {
+            this.pages = pages;
+            List<Range> list = new ArrayList<>();
+            int start = -1;
+            int unit = granules == null ? 256 : 4;
+            for (int addr = 0; addr <= 65536; addr += unit) {
+                boolean dirty = addr < 65536 && isPageDirty(addr >> 8)
+                        && (granules == null || (granules[addr >> 8] & (1L << ((addr & 0xFF) >> 2))) != 0);
+                if (dirty && start < 0) start = addr;
+                if (!dirty && start >= 0) {
+                    list.add(new Range(start, addr));
+                    start = -1;
+                }
+            }
+            this.ranges = Collections.unmodifiableList(list);
+        }
+
+        public boolean isPageDirty(int page) {
+            return (pages[(page & 0xFF) >> 6] & (1L << page)) != 0;
+        }
+
+        public boolean isEmpty() {
+            return ranges.isEmpty();
+        }
+
+        // Plages contiguës, à la page ou à 4 octets près selon le suivi
+        public List<Range> getRanges() {
+            return ranges;
+        }
+    }
+
+    public Memory() {
+        this(true);
+    }
+
+    // false : table vide, remplie par fork()
+    private Memory(boolean defaultPages) {
+        if (!defaultPages) return;
+        for (int page = 0; page < 256; page++) {
+            mapPage(page, PageType.RAM, ZERO_PAGE, null, true);
+        }
+        // ports console FF00/FF01 : un périphérique comme un autre
+        setPage(0xFF, PageType.DEVICE, null, new ConsolePorts());
+    }
+
+    // Copie indépendante : les pages RAM/ROM sont partagées et copiées à la
+    // première écriture, de part et d'autre. Les périphériques sont
+    // dupliqués (Forkable) ; les listeners et la source d'entrée console ne
+    // le sont pas, la copie reçoit les siens
+    public Memory fork() {
+        Memory copy = new Memory(false);
+        Map<Device, Device> forked = new IdentityHashMap<>();
+        for (int page = 0; page < 256; page++) {
+            copy.types[page] = types[page];
+            if (data[page] != null) {
+                shared[page] = true;
+                writePages[page] = null;
+                copy.data[page] = data[page];
+                copy.readPages[page] = data[page];
+                copy.shared[page] = true;
+            }
+        }
+        for (int page = 0; page < 256; page++) {
+            if (devices[page] == null) continue;
+            copy.devices[page] = forkDevice(devices[page], copy, forked, page);
+            copy.volatilePages[page] = copy.devices[page].isVolatile();
+        }
+        return copy;
+    }
+
+    // Un périphérique présent sur plusieurs pages (ou dans plusieurs pages
+    // d'E/S) n'est dupliqué qu'une fois
+    private static Device forkDevice(Device device, Memory copy, Map<Device, Device> forked, int page) {
+        Device twin = forked.get(device);
+        if (twin == null) {
+            if (device instanceof IoPage) {
+                twin = ((IoPage) device).fork(copy, forked, page);
+            } else if (device instanceof Forkable) {
+                twin = ((Forkable) device).fork(copy);
+            } else {
+                throw new IllegalStateException(
+                        String.format("Périphérique non duplicable sur la page %02X", page));
+            }
+            forked.put(device, twin);
+        }
+        return twin;
+    }
+
+    //Interfaces pour E/S mappées
+    public interface ConsoleOutListener {
+        void onConsoleOut(byte b);
+
+        // Lot d'octets (ConsoleOutBuffer) : le tableau n'est valable que
+        // pendant l'appel. Par défaut, octet par octet
+        default void onConsoleOut(byte[] bytes, int offset, int length) {
+            for (int i = 0; i < length; i++) onConsoleOut(bytes[offset + i]);
+        }
+    }
+
+    public interface ConsoleInProvider {
+        byte readConsoleIn();
+
+        // false : la lecture ne consomme rien et renverra la même valeur.
+        // Par défaut toute lecture est considérée comme une nouvelle donnée
+        default boolean hasInput() { return true; }
+    }
+
+    private ConsoleOutListener consoleOutListener;
+    private ConsoleInProvider consoleInProvider;
+
+    public void setConsoleOutListener(ConsoleOutListener l) {
+        this.consoleOutListener = l;
+    }
+
+    public void setConsoleInProvider(ConsoleInProvider p) {
+        this.consoleInProvider = p;
+    }
+
+    // Version des entrées : change quand une donnée arrive ou est consommée
+    // sur un port. Une boucle d'attente qui la laisse inchangée n'a rien lu
+    // de neuf (le CPU peut alors sauter ses itérations)
+    private volatile int ioVersion;
+
+    public int getIoVersion() {
+        return ioVersion;
+    }
+
+    // À appeler par une source d'entrée quand une donnée arrive
+    public void inputChanged() {
+        ioVersion++;
+    }
+
+    // Lectures de périphériques volatils (thread du CPU) : une boucle
+    // d'attente qui en fait n'est pas une boucle sans entrée neuve
+    public int getVolatileReads() {
+        return volatileReads;
+    }
+
+    // Page FF : FF00 sortie console, FF01 entrée console, FF02 état de
+    // l'entrée (bit 0 : donnée disponible) si une source est branchée, le
+    // reste en RAM. Lire l'état ne consomme rien : une boucle d'attente
+    // sur FF02 sans donnée reste une boucle sans entrée neuve
+    private final class ConsolePorts implements Device, Snapshotable, Forkable {
+        private final byte[] cells = new byte[256];
+
+        @Override
+        public int read(int addr) {
+            if (addr == 0xFF01 && consoleInProvider != null) {
+                if (consoleInProvider.hasInput()) ioVersion++;
+                return consoleInProvider.readConsoleIn() & 0xFF;
+            }
+            return peek(addr);
+        }
+
+        @Override
+        public void write(int addr, int value) {
+            if (addr == 0xFF00 && consoleOutListener != null) {
+                consoleOutListener.onConsoleOut((byte) value);
+            }
+            // on laisse la valeur dans la memoire
+            cells[addr & 0xFF] = (byte) value;
+        }
+
+        @Override
+        public int peek(int addr) {
+            if (addr == 0xFF02 && consoleInProvider != null) {
+                return consoleInProvider.hasInput() ? 0x01 : 0x00;
+            }
+            return cells[addr & 0xFF] & 0xFF;
+        }
+
+        @Override
+        public void poke(int addr, int value) {
+            cells[addr & 0xFF] = (byte) value;
+        }
+
+        // Entrées suivies par ioVersion
+        @Override
+        public boolean isVolatile() {
+            return false;
+        }
+
+        @Override
+        public Object saveState() {
+            return cells.clone();
+        }
+
+        @Override
+        public void restoreState(Object state) {
+            System.arraycopy((byte[]) state, 0, cells, 0, 256);
+        }
+
+        @Override
+        public Device fork(Memory copy) {
+            ConsolePorts twin = copy.new ConsolePorts();
+            System.arraycopy(cells, 0, twin.cells, 0, 256);
+            return twin;
+        }
+    }
+
+    // Page partagée par des périphériques de quelques octets (PIA, ACIA...) :
+    // aiguillage par adresse. Les adresses libres gardent le contenu
+    // précédent de la page. Jamais modifiée une fois mappée : mapIo() en
+    // installe une nouvelle (un instantané garde l'ancienne)
+    private static final class IoPage implements Device, Snapshotable {
+        private final Device[] slots = new Device[256];
+        private final Device base;          // ancien périphérique de page
+        private final byte[] cells;         // ou ancien contenu RAM/ROM
+        private final boolean readOnly;
+
+        IoPage(Device base, byte[] cells, boolean readOnly) {
+            this.base = base;
+            this.cells = cells;
+            this.readOnly = readOnly;
+        }
+
+        IoPage(IoPage other) {
+            this(other.base, other.cells == null ? null : other.cells.clone(), other.readOnly);
+            System.arraycopy(other.slots, 0, slots, 0, 256);
+        }
+
+        // Périphériques distincts de la page, ancien compris
+        List<Device> members() {
+            List<Device> list = new ArrayList<>();
+            if (base != null) list.add(base);
+            for (Device d : slots) {
+                if (d != null && !list.contains(d)) list.add(d);
+            }
+            return list;
+        }
+
+        @Override
+        public boolean isVolatile() {
+            for (Device d : members()) {
+                if (d.isVolatile()) return true;
+            }
+            return false;
+        }
+
+        IoPage fork(Memory copy, Map<Device, Device> forked, int page) {
+            IoPage twin = new IoPage(base == null ? null : forkDevice(base, copy, forked, page),
+                    cells == null ? null : cells.clone(), readOnly);
+            for (int i = 0; i < 256; i++) {
+                if (slots[i] != null) twin.slots[i] = forkDevice(slots[i], copy, forked, page);
+            }
+            return twin;
+        }
+
+        // Adresses libres en RAM ; les périphériques sont suivis à part
+        @Override
+        public Object saveState() {
+            return cells == null ? null : cells.clone();
+        }
+
+        @Override
+        public void restoreState(Object state) {
+            if (state != null) System.arraycopy((byte[]) state, 0, cells, 0, 256);
+        }
+
+        @Override
+        public int read(int addr) {
+            Device d = slots[addr & 0xFF];
+            if (d != null) return d.read(addr);
+            return base != null ? base.read(addr) : cells[addr & 0xFF] & 0xFF;
+        }
+
+        @Override
+        public void write(int addr, int value) {
+            Device d = slots[addr & 0xFF];
+            if (d != null) d.write(addr, value);
+            else if (base != null) base.write(addr, value);
+            else if (!readOnly) cells[addr & 0xFF] = (byte) value;
+        }
+
+        @Override
+        public int peek(int addr) {
+            Device d = slots[addr & 0xFF];
+            if (d != null) return d.peek(addr);
+            return base != null ? base.peek(addr) : cells[addr & 0xFF] & 0xFF;
+        }
+
+        @Override
+        public void poke(int addr, int value) {
+            Device d = slots[addr & 0xFF];
+            if (d != null) d.poke(addr, value);
+            else if (base != null) base.poke(addr, value);
+            else cells[addr & 0xFF] = (byte) value;
+        }
+    }
+
+    // TABLE DES PAGES
+
+    // La page utilise directement le tableau fourni (256 octets)
+    public void mapRam(int page, byte[] bytes) {
+        setPage(page, PageType.RAM, checkPage(bytes), null);
+    }
+
+    // Pages neuves à zéro (allouées à la première écriture)
+    public void mapRam(int firstPage, int count) {
+        for (int i = 0; i < count; i++) {
+            mapPage(firstPage + i, PageType.RAM, ZERO_PAGE, null, true);
+        }
+    }
+
+    public void mapRom(int page, byte[] bytes) {
+        setPage(page, PageType.ROM, checkPage(bytes), null);
+    }
+
+    // Image ROM copiée à partir d'une adresse alignée sur une page,
+    // la fin de la dernière page est complétée par FF
+    public void mapRom(int address, byte[] image, int length) {
+        if ((address & 0xFF) != 0) {
+            throw new IllegalArgumentException(
+                    String.format("Adresse ROM non alignée sur une page : %04X", address));
+        }
+        address &= 0xFFFF;
+        if (length < 0 || length > image.length || address + length > 65536) {
+            throw new IllegalArgumentException("Image ROM trop longue, dépassement mémoire.");
+        }
+        for (int off = 0; off < length; off += 256) {
+            byte[] bytes = new byte[256];
+            Arrays.fill(bytes, (byte) 0xFF);
+            System.arraycopy(image, off, bytes, 0, Math.min(256, length - off));
+            mapRom((address + off) >> 8, bytes);
+        }
+    }
+
+    public void mapDevice(int page, Device device) {
+        if (device == null) {
+            throw new IllegalArgumentException("Périphérique nul pour la page " + page);
+        }
+        setPage(page, PageType.DEVICE, null, device);
+    }
+
+    public void mapDevice(int firstPage, int count, Device device) {
+        for (int i = 0; i < count; i++) {
+            mapDevice(firstPage + i, device);
+        }
+    }
+
+    // Périphérique sur une plage d'adresses quelconque : les pages entières
+    // lui sont mappées directement, une page partielle devient une page
+    // d'E/S aiguillée par adresse. Le reste de la mémoire n'en paie rien
+    public void mapIo(int address, int length, Device device) {
+        if (device == null) {
+            throw new IllegalArgumentException(String.format("Périphérique nul en %04X", address));
+        }
+        if (address < 0 || length <= 0 || address + length > 65536) {
+            throw new IllegalArgumentException(
+                    String.format("Plage d'E/S invalide : %04X+%d", address, length));
+        }
+        int end = address + length;
+        for (int page = address >> 8; page <= (end - 1) >> 8; page++) {
+            int from = Math.max(address, page << 8) & 0xFF;
+            int to = Math.min(end, (page + 1) << 8) - (page << 8);
+            if (from == 0 && to == 256) {
+                mapDevice(page, device);
+                continue;
+            }
+            IoPage io;
+            if (devices[page] instanceof IoPage) {
+                io = new IoPage((IoPage) devices[page]);
+            } else if (types[page] == PageType.DEVICE) {
+                io = new IoPage(devices[page], null, false);
+            } else {
+                io = new IoPage(null, data[page].clone(), types[page] == PageType.ROM);
+            }
+            Arrays.fill(io.slots, from, to, device);
+            setPage(page, PageType.DEVICE, null, io);
+        }
+    }
+
+    public PageType getPageType(int page) {
+        return types[page & 0xFF];
+    }
+
+    // Tableau d'une page RAM/ROM, null pour un périphérique. En lecture :
+    // il peut appartenir à un instantané (écrire via loadByte)
+    public byte[] getPageData(int page) {
+        return data[page & 0xFF];
+    }
+
+    public Device getDevice(int page) {
+        return devices[page & 0xFF];
+    }
+
+    private static byte[] checkPage(byte[] bytes) {
+        if (bytes == null || bytes.length != 256) {
+            throw new IllegalArgumentException("Une page fait 256 octets");
+        }
+        return bytes;
+    }
+
+    private void setPage(int page, PageType type, byte[] bytes, Device device) {
+        mapPage(page, type, bytes, device, false);
+    }
+
+    // shared : tableau référencé par un instantané (MMU)
+    void mapPage(int page, PageType type, byte[] bytes, Device device, boolean isShared) {
+        if (page < 0 || page > 0xFF) {
+            throw new IllegalArgumentException("Page invalide : " + page);
+        }
+        types[page] = type;
+        data[page] = bytes;
+        devices[page] = device;
+        shared[page] = isShared && bytes != null;
+        volatilePages[page] = device != null && device.isVolatile();
+        readPages[page] = bytes;
+        // le contenu visible a changé : page modifiée, code décodé périmé
+        markDirty(page);
+        if (watchedPages[page]) codeWritten(page);
+    }
+
+    void setPageOwner(PageOwner owner) {
+        this.pageOwner = owner;
+    }
+
+    // Chemin rapide en écriture : RAM ni surveillée ni partagée, déjà
+    // marquée modifiée, sans suivi fin
+    private void updateWritePage(int page) {
+        writePages[page] = (types[page] == PageType.RAM && !watchedPages[page] && !shared[page]
+                && isDirty(page) && dirtyGranules == null)
+                ? data[page] : null;
+    }
+
+    // SUIVI DES MODIFICATIONS
+
+    private boolean isDirty(int page) {
+        return (dirtyPages[page >> 6] & (1L << page)) != 0;
+    }
+
+    // Page entière (mappage, restauration, effacement)
+    private void markDirty(int page) {
+        dirtyPages[page >> 6] |= 1L << page;
+        if (dirtyGranules != null) dirtyGranules[page] = -1L;
+        updateWritePage(page);
+    }
+
+    private void markWritten(int addr) {
+        int page = addr >> 8;
+        if (dirtyGranules != null) dirtyGranules[page] |= 1L << ((addr & 0xFF) >> 2);
+        if (!isDirty(page)) {
+            dirtyPages[page >> 6] |= 1L << page;
+            updateWritePage(page);
+        }
+    }
+
+    // Active ou coupe le suivi à 4 octets près (les pages restent suivies)
+    public void setFineDirtyTracking(boolean fine) {
+        if (fine == (dirtyGranules != null)) return;
+        dirtyGranules = fine ? new long[256] : null;
+        if (fine) {
+            for (int page = 0; page < 256; page++) {
+                if (isDirty(page)) dirtyGranules[page] = -1L;
+            }
+        }
+        for (int page = 0; page < 256; page++) updateWritePage(page);
+    }
+
+    public boolean isFineDirtyTracking() {
+        return dirtyGranules != null;
+    }
+
+    // Relève les plages modifiées depuis l'appel précédent et les remet à
+    // zéro d'un seul geste : toute écriture postérieure figurera dans le
+    // relevé suivant. À appeler depuis le thread du CPU ou CPU arrêté
+    public DirtyRegions takeDirty() {
+        // pages reprotégées avant la remise à zéro
+        for (int page = 0; page < 256; page++) {
+            if (isDirty(page)) writePages[page] = null;
+        }
+        DirtyRegions regions = new DirtyRegions(dirtyPages.clone(),
+                dirtyGranules == null ? null : dirtyGranules.clone());
+        Arrays.fill(dirtyPages, 0L);
+        if (dirtyGranules != null) Arrays.fill(dirtyGranules, 0L);
+        return regions;
+    }
+
+    // Tableau de la page, copié d'abord s'il appartient à un instantané
+    private byte[] ownPage(int page) {
+        if (shared[page]) {
+            byte[] copy = data[page].clone();
+            data[page] = copy;
+            readPages[page] = copy;
+            shared[page] = false;
+            updateWritePage(page);
+            if (pageOwner != null) pageOwner.pageCopied(page, copy);
+        }
+        return data[page];
+    }
+
+    // INSTANTANÉS
+
+    // Coût constant : les pages sont figées, pas copiées
+    public Snapshot snapshot() {
+        Map<Device, Object> states = new IdentityHashMap<>();
+        for (int page = 0; page < 256; page++) {
+            if (data[page] != null) {
+                shared[page] = true;
+                writePages[page] = null;
+            } else {
+                saveState(devices[page], states);
+                if (devices[page] instanceof IoPage) {
+                    for (Device d : ((IoPage) devices[page]).members()) saveState(d, states);
+                }
+            }
+        }
+        return new Snapshot(data.clone(), types.clone(), devices.clone(), states);
+    }
+
+    private static void saveState(Device device, Map<Device, Object> states) {
+        if (device instanceof Snapshotable && !states.containsKey(device)) {
+            states.put(device, ((Snapshotable) device).saveState());
+        }
+    }
+
+    // Coût constant : les pages de l'instantané redeviennent visibles et
+    // restent partagées (l'instantané peut être restauré encore)
+    public void restore(Snapshot snapshot) {
+        for (int page = 0; page < 256; page++) {
+            types[page] = snapshot.types[page];
+            data[page] = snapshot.data[page];
+            devices[page] = snapshot.devices[page];
+            volatilePages[page] = devices[page] != null && devices[page].isVolatile();
+            shared[page] = data[page] != null;
+            readPages[page] = data[page];
+            markDirty(page);
+        }
+        for (Map.Entry<Device, Object> e : snapshot.states.entrySet()) {
+            ((Snapshotable) e.getKey()).restoreState(e.getValue());
+        }
+        for (int page = 0; page < 256; page++) {
+            if (watchedPages[page]) codeWritten(page);
+        }
+    }
+
+    // Surveillance des pages de code (cache de blocs décodés du CPU)
+    public interface CodeWriteListener {
+        void onCodeWrite(int page);
+    }
+
+    // Une page surveillée quitte le chemin rapide en écriture
+    private final boolean[] watchedPages = new boolean[256];
+    private CodeWriteListener codeWriteListener;
+
+    public void setCodeWriteListener(CodeWriteListener l) {
+        this.codeWriteListener = l;
+    }
+
+    // La prochaine écriture dans la page sera signalée au listener
+    public void watchPage(int page) {
+        page &= 0xFF;
+        watchedPages[page] = true;
+        writePages[page] = null;
+    }
+
+    private void codeWritten(int page) {
+        watchedPages[page] = false;
+        updateWritePage(page);
+        if (codeWriteListener != null) {
+            codeWriteListener.onCodeWrite(page);
+        }
+    }
+
+    // LECTURE / ÉCRITURE 
+    public int readByte(int addr) {
+        addr &= 0xFFFF;
+        byte[] page = readPages[addr >> 8];
+        if (page != null) return page[addr & 0xFF] & 0xFF;
+        if (volatilePages[addr >> 8]) volatileReads++;
+        return devices[addr >> 8].read(addr) & 0xFF;
+    }
+
+    public void writeByte(int addr, int value) {
+        addr &= 0xFFFF;
+        byte[] page = writePages[addr >> 8];
+        if (page != null) {
+            page[addr & 0xFF] = (byte) value;
+            return;
+        }
+        writeSlow(addr, value & 0xFF);
+    }
+
+    // Périphérique, ROM (écriture ignorée), page partagée ou page de code
+    // surveillée
+    private void writeSlow(int addr, int value) {
+        int page = addr >> 8;
+        switch (types[page]) {
+            case DEVICE: devices[page].write(addr, value); break;
+            case RAM:    ownPage(page)[addr & 0xFF] = (byte) value; break;
+            case ROM:    return;
+        }
+        markWritten(addr);
+        if (watchedPages[page]) {
+            codeWritten(page);
+        }
+    }
+
+    // Lecture sans effet de bord (pas d'E/S console)
+    public int peekByte(int addr) {
+        addr &= 0xFFFF;
+        byte[] page = data[addr >> 8];
+        if (page != null) return page[addr & 0xFF] & 0xFF;
+        return devices[addr >> 8].peek(addr) & 0xFF;
+    }
+
+    // Écriture de chargeur : sans effet de bord, ROM comprise, dans la
+    // page (ou banque) actuellement mappée à cette adresse
+    public void loadByte(int addr, int value) {
+        addr &= 0xFFFF;
+        pokeByte(addr, value & 0xFF);
+        markWritten(addr);
+        if (watchedPages[addr >> 8]) {
+            codeWritten(addr >> 8);
+        }
+    }
+
+    private void pokeByte(int addr, int value) {
+        if (data[addr >> 8] != null) ownPage(addr >> 8)[addr & 0xFF] = (byte) value;
+        else devices[addr >> 8].poke(addr, value);
+    }
+
+    // LECTURE / ÉCRITURE 
+    
+    public int readWord(int addr) {
+        addr &= 0xFFFF;
+
+        int high = readByte(addr);
+        int low  = readByte(addr + 1);
+
+        return ((high << 8) | low) & 0xFFFF;
+    }
+
+    public void writeWord(int addr, int value) {
+        addr &= 0xFFFF;
+
+        writeByte(addr, (value >> 8) & 0xFF);     // octet haut
+        writeByte(addr + 1, value & 0xFF);        // octet bas
+    }
+
+    
+    // CHARGER UN PROGRAMME
+   
+    public void loadProgram(byte[] program, int startAddress) {
+        startAddress &= 0xFFFF;
+
+        if (startAddress + program.length > 65536) {
+            throw new IllegalArgumentException(
+                    "Programme trop long, dépassement mémoire.");
+        }
+
+        for (int off = 0; off < program.length; ) {
+            int addr = startAddress + off;
+            int n = Math.min(256 - (addr & 0xFF), program.length - off);
+            if (data[addr >> 8] != null) {
+                System.arraycopy(program, off, ownPage(addr >> 8), addr & 0xFF, n);
+            } else {
+                for (int i = 0; i < n; i++) pokeByte(addr + i, program[off + i]);
+            }
+            off += n;
+        }
+        for (int i = 0; i < program.length; i++) {
+            markWritten(startAddress + i);
+        }
+
+        if (program.length > 0) {
+            for (int page = startAddress >> 8; page <= (startAddress + program.length - 1) >> 8; page++) {
+                if (watchedPages[page]) codeWritten(page);
+            }
+        }
+    }
+
+    
+    // EFFACER LA MEMOIRE COMPLETE
+    
+    // RAM et périphériques remis à zéro, la ROM est conservée
+    public void clearMemory() {
+        // MMU : toutes les banques de RAM, mappées ou non, puis remappage
+        if (pageOwner != null) pageOwner.clearPages();
+
+        for (int page = 0; page < 256; page++) {
+            if (types[page] == PageType.RAM && pageOwner == null) {
+                // la page est rendue : retour à la page de zéros commune
+                data[page] = ZERO_PAGE;
+                readPages[page] = ZERO_PAGE;
+                shared[page] = true;
+                markDirty(page);
+            } else if (types[page] == PageType.DEVICE) {
+                for (int i = 0; i < 256; i++) devices[page].poke((page << 8) | i, 0);
+                markDirty(page);
+            }
+        }
+
+        for (int page = 0; page < 256; page++) {
+            if (watchedPages[page]) codeWritten(page);
+        }
+    }
+
+    
+    // DUMP MEMOIRE 
+    public String memoryDump(int start, int length) {
+        start &= 0xFFFF;
+        int end = Math.min(start + length, 65536);
+
+        StringBuilder sb = new StringBuilder();
+
+        for (int addr = start; addr < end; addr += 16) {
+            sb.append(String.format("%04X : ", addr));
+
+            // octets
+            for (int i = 0; i < 16 && addr + i < end; i++) {
+                sb.append(String.format("%02X ", peekByte(addr + i)));
+            }
+
+            sb.append(" | ");
+
+            // caracteres
+            for (int i = 0; i < 16 && addr + i < end; i++) {
+                char c = (char) peekByte(addr + i);
+                sb.append((c >= 32 && c <= 126) ? c : '.');
+            }
+
+            sb.append("\n");
+        }
+
+        return sb.toString();
+    }
+
+   
+    // LECTURE multiple 
+    public int[] readBytes(int start, int length) {
+        start &= 0xFFFF;
+        length = Math.min(length, 65536 - start);
+
+        int[] data = new int[length];
+
+        for (int i = 0; i < length; i++) {
+            data[i] = readByte(start + i);
+        }
+
+        return data;
+    }
+}
+
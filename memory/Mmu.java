@@ -0,0 +1,302 @@
+package memory;
+
+import java.util.Arrays;
+
+// MMU à fenêtres : l'espace 64 Ko du CPU est découpé en fenêtres de taille
+// fixe (8 Ko par défaut), chacune pointant sur une banque de la mémoire
+// physique (512 Ko par défaut). Écrire le registre d'une fenêtre remplace
+// les références de ses pages dans la table de Memory : aucune copie.
+//
+// Les registres occupent le début d'une page de périphérique (un octet
+// par fenêtre, lecture = banque courante). Les pages de périphériques
+// restent par-dessus les banques quand une fenêtre est remappée.
+//
+// Les banques suivent les instantanés de Memory : une page physique figée
+// n'est copiée qu'à sa première écriture, mappée ou non.
+public final class Mmu implements Memory.Device, Memory.Snapshotable, Memory.Forkable {
+
+    private final Memory memory;
+    private final int registerPage;
+    private final int windowPages;      // pages de 256 octets par fenêtre
+    private final int bankCount;
+
+    // Pages physiques, allouées au premier mappage ou chargement de la banque
+    private final byte[][] pages;
+    private final boolean[] frozen;     // page référencée par un instantané
+    private final boolean[] readOnly;
+    private final int[] windowBank;
+    private final byte[] cells = new byte[256];
+
+    public Mmu(Memory memory) {
+        this(memory, 0xFE, 8 * 1024, 64);
+    }
+
+    public Mmu(Memory memory, int registerPage, int windowSize, int bankCount) {
+        if (windowSize < 256 || windowSize > 32768 || Integer.bitCount(windowSize) != 1) {
+            throw new IllegalArgumentException("Taille de fenêtre invalide : " + windowSize);
+        }
+        if (bankCount <= 0 || bankCount > 256) {
+            throw new IllegalArgumentException("Nombre de banques invalide : " + bankCount);
+        }
+        if (registerPage < 0 || registerPage > 0xFF) {
+            throw new IllegalArgumentException("Page des registres invalide : " + registerPage);
+        }
+        this.memory = memory;
+        this.registerPage = registerPage;
+        this.windowPages = windowSize >> 8;
+        this.bankCount = bankCount;
+        this.pages = new byte[bankCount * windowPages][];
+        this.frozen = new boolean[pages.length];
+        this.readOnly = new boolean[bankCount];
+        this.windowBank = new int[65536 / windowSize];
+
+        memory.mapDevice(registerPage, this);
+        memory.setPageOwner(owner());
+        // au départ, fenêtre n -> banque n
+        for (int w = 0; w < windowBank.length; w++) {
+            mapWindow(w, w % bankCount);
+        }
+    }
+
+    // Copie pour Memory.fork() : la table des pages de copy est déjà
+    // remplie, les pages physiques sont partagées et figées des deux côtés
+    private Mmu(Mmu parent, Memory copy) {
+        this.memory = copy;
+        this.registerPage = parent.registerPage;
+        this.windowPages = parent.windowPages;
+        this.bankCount = parent.bankCount;
+        this.pages = parent.pages.clone();
+        this.frozen = new boolean[pages.length];
+        this.readOnly = parent.readOnly.clone();
+        this.windowBank = parent.windowBank.clone();
+        System.arraycopy(parent.cells, 0, cells, 0, 256);
+        Arrays.fill(frozen, true);
+        Arrays.fill(parent.frozen, true);
+        copy.setPageOwner(owner());
+    }
+
+    @Override
+    public Memory.Device fork(Memory copy) {
+        return new Mmu(this, copy);
+    }
+
+    public int getWindowCount() { return windowBank.length; }
+    public int getWindowSize() { return windowPages << 8; }
+    public int getBankCount() { return bankCount; }
+    public int getRegisterPage() { return registerPage; }
+
+    public int getBank(int window) {
+        return windowBank[window];
+    }
+
+    // Fenêtre contenant une adresse CPU
+    public int windowOf(int addr) {
+        return (addr & 0xFFFF) / (windowPages << 8);
+    }
+
+    // MAPPAGE
+
+    public void mapWindow(int window, int bank) {
+        if (window < 0 || window >= windowBank.length) {
+            throw new IllegalArgumentException("Fenêtre invalide : " + window);
+        }
+        if (bank < 0 || bank >= bankCount) {
+            throw new IllegalArgumentException("Banque invalide : " + bank);
+        }
+        windowBank[window] = bank;
+        int first = window * windowPages;
+        for (int i = 0; i < windowPages; i++) {
+            mapPage(first + i, bank, i);
+        }
+    }
+
+    // Banque en ROM : les écritures du CPU sont ignorées
+    public void setReadOnly(int bank, boolean rom) {
+        checkBank(bank);
+        readOnly[bank] = rom;
+        remapBank(bank);
+    }
+
+    public boolean isReadOnly(int bank) {
+        checkBank(bank);
+        return readOnly[bank];
+    }
+
+    private void mapPage(int page, int bank, int index) {
+        if (memory.getPageType(page) == Memory.PageType.DEVICE) return;
+        byte[] bytes = physicalPage(bank, index);
+        memory.mapPage(page, readOnly[bank] ? Memory.PageType.ROM : Memory.PageType.RAM,
+                bytes, null, frozen[bank * windowPages + index]);
+    }
+
+    // Memory a copié une page figée avant de l'écrire : la copie devient la
+    // page physique, et les autres fenêtres sur la même banque la voient
+    private void pageCopied(int page, byte[] copy) {
+        int window = page / windowPages;
+        int index = page % windowPages;
+        int bank = windowBank[window];
+        int p = bank * windowPages + index;
+        pages[p] = copy;
+        frozen[p] = false;
+        for (int w = 0; w < windowBank.length; w++) {
+            if (w != window && windowBank[w] == bank) mapPage(w * windowPages + index, bank, index);
+        }
+    }
+
+    private Memory.PageOwner owner() {
+        return new Memory.PageOwner() {
+            @Override
+            public void pageCopied(int page, byte[] copy) {
+                Mmu.this.pageCopied(page, copy);
+            }
+
+            @Override
+            public void clearPages() {
+                Mmu.this.clearPages();
+            }
+        };
+    }
+
+    // Memory.clearMemory() : pages physiques des banques de RAM rendues
+    // (réallouées à zéro au mappage), les ROM sont conservées
+    private void clearPages() {
+        for (int p = 0; p < pages.length; p++) {
+            if (!readOnly[p / windowPages]) {
+                pages[p] = null;
+                frozen[p] = false;
+            }
+        }
+        for (int w = 0; w < windowBank.length; w++) {
+            mapWindow(w, windowBank[w]);
+        }
+    }
+
+    // La banque a changé : ses fenêtres visibles sont remappées (et le code
+    // décodé de leurs pages invalidé)
+    private void remapBank(int bank) {
+        for (int w = 0; w < windowBank.length; w++) {
+            if (windowBank[w] == bank) mapWindow(w, bank);
+        }
+    }
+
+    private byte[] physicalPage(int bank, int index) {
+        int p = bank * windowPages + index;
+        if (pages[p] == null) pages[p] = new byte[256];
+        return pages[p];
+    }
+
+    // Page physique à écrire hors du CPU (chargeur)
+    private byte[] ownedPage(int bank, int index) {
+        int p = bank * windowPages + index;
+        if (frozen[p] && pages[p] != null) {
+            pages[p] = pages[p].clone();
+            frozen[p] = false;
+        }
+        return physicalPage(bank, index);
+    }
+
+    private void checkBank(int bank) {
+        if (bank < 0 || bank >= bankCount) {
+            throw new IllegalArgumentException("Banque invalide : " + bank);
+        }
+    }
+
+    // ACCÈS PHYSIQUES (chargeurs, débogueur)
+
+    // Charge une image à partir d'un décalage dans une banque ; elle peut
+    // déborder sur les banques suivantes. Les ROM sont chargées aussi.
+    public void loadBank(int bank, int offset, byte[] image) {
+        checkBank(bank);
+        long start = (long) bank * getWindowSize() + offset;
+        if (offset < 0 || start + image.length > (long) bankCount * getWindowSize()) {
+            throw new IllegalArgumentException("Image trop longue, dépassement des banques.");
+        }
+        for (int i = 0; i < image.length; i++) {
+            int phys = (int) (start + i);
+            ownedPage(phys / getWindowSize(), (phys >> 8) % windowPages)[phys & 0xFF] = image[i];
+        }
+        int last = (int) ((start + Math.max(image.length, 1) - 1) / getWindowSize());
+        for (int b = bank; b <= last; b++) remapBank(b);
+    }
+
+    // Octet d'une banque, mappée ou non
+    public int peekBank(int bank, int offset) {
+        checkBank(bank);
+        if (offset < 0 || offset >= getWindowSize()) {
+            throw new IllegalArgumentException("Décalage hors banque : " + offset);
+        }
+        byte[] page = pages[bank * windowPages + (offset >> 8)];
+        return page == null ? 0 : page[offset & 0xFF] & 0xFF;
+    }
+
+    // INSTANTANÉS (appelés par Memory.snapshot / restore)
+
+    private static final class State {
+        final byte[][] pages;
+        final boolean[] readOnly;
+        final int[] windowBank;
+        final byte[] cells;
+
+        State(byte[][] pages, boolean[] readOnly, int[] windowBank, byte[] cells) {
+            this.pages = pages;
+            this.readOnly = readOnly;
+            this.windowBank = windowBank;
+            this.cells = cells;
+        }
+    }
+
+    @Override
+    public Object saveState() {
+        Arrays.fill(frozen, true);
+        return new State(pages.clone(), readOnly.clone(), windowBank.clone(), cells.clone());
+    }
+
+    @Override
+    public void restoreState(Object state) {
+        State s = (State) state;
+        System.arraycopy(s.pages, 0, pages, 0, pages.length);
+        System.arraycopy(s.readOnly, 0, readOnly, 0, bankCount);
+        System.arraycopy(s.cells, 0, cells, 0, 256);
+        Arrays.fill(frozen, true);
+        for (int w = 0; w < windowBank.length; w++) {
+            mapWindow(w, s.windowBank[w]);
+        }
+    }
+
+    // REGISTRES
+
+    @Override
+    public int read(int addr) {
+        return peek(addr);
+    }
+
+    @Override
+    public void write(int addr, int value) {
+        int r = addr & 0xFF;
+        if (r < windowBank.length) {
+            // numéro de banque modulo le nombre de banques (bits d'adresse absents)
+            mapWindow(r, (value & 0xFF) % bankCount);
+        } else {
+            cells[r] = (byte) value;
+        }
+    }
+
+    @Override
+    public int peek(int addr) {
+        int r = addr & 0xFF;
+        return r < windowBank.length ? windowBank[r] : cells[r] & 0xFF;
+    }
+
+    @Override
+    public void poke(int addr, int value) {
+        // chargement / effacement : les registres ne sont pas touchés
+        int r = addr & 0xFF;
+        if (r >= windowBank.length) cells[r] = (byte) value;
+    }
+
+    // Registres modifiés par le CPU seulement
+    @Override
+    public boolean isVolatile() {
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package memory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Image ROM immuable, découpée en pages, que toutes les instances de Memory
+// peuvent mapper ensemble (ferme de simulation) : une seule copie en mémoire,
+// quel que soit le nombre de machines. Les pages sont mappées partagées :
+// une écriture de chargeur, ou du CPU si l'image est mappée en écriture,
+// copie d'abord la page dans l'instance concernée.
+public final class RomImage {
+
+    private final int address;
+    private final int length;
+    private final byte[][] pages;
+
+    // address : alignée sur une page ; la fin de la dernière page est
+    // complétée par FF
+    public RomImage(byte[] image, int address) {
+        if ((address & 0xFF) != 0 || address < 0 || address > 0xFFFF) {
+            throw new IllegalArgumentException(
+                    String.format("Adresse ROM non alignée sur une page : %04X", address));
+        }
+        if (image.length == 0 || address + image.length > 65536) {
+            throw new IllegalArgumentException("Image ROM vide ou trop longue, dépassement mémoire.");
+        }
+        this.address = address;
+        this.length = image.length;
+        this.pages = new byte[(image.length + 255) >> 8][];
+        for (int i = 0; i < pages.length; i++) {
+            byte[] bytes = new byte[256];
+            Arrays.fill(bytes, (byte) 0xFF);
+            System.arraycopy(image, i << 8, bytes, 0, Math.min(256, image.length - (i << 8)));
+            pages[i] = bytes;
+        }
+    }
+
+    public static RomImage load(Path file, int address) throws IOException {
+        return new RomImage(Files.readAllBytes(file), address);
+    }
+
+    public int getAddress() { return address; }
+    public int getLength() { return length; }
+    public int getPageCount() { return pages.length; }
+
+    public int getFirstPage() {
+        return address >> 8;
+    }
+
+    // En ROM : les écritures du CPU sont ignorées
+    public void mapInto(Memory memory) {
+        mapInto(memory, false);
+    }
+
+    // writable : firmware modifiable, la page écrite est copiée dans
+    // l'instance (les autres gardent l'image)
+    public void mapInto(Memory memory, boolean writable) {
+        Memory.PageType type = writable ? Memory.PageType.RAM : Memory.PageType.ROM;
+        for (int i = 0; i < pages.length; i++) {
+            memory.mapPage(getFirstPage() + i, type, pages[i], null, true);
+        }
+    }
+
+    // Rend les pages de l'image à la RAM (à zéro)
+    public void unmapFrom(Memory memory) {
+        memory.mapRam(getFirstPage(), pages.length);
+    }
+
+    public int peek(int addr) {
+        int off = (addr & 0xFFFF) - address;
+        if (off < 0 || off >= pages.length << 8) {
+            throw new IllegalArgumentException(String.format("Adresse hors de l'image ROM : %04X", addr));
+        }
+        return pages[off >> 8][off & 0xFF] & 0xFF;
+    }
+}
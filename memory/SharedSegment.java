@@ -0,0 +1,213 @@
+package memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Segment de mémoire partagé entre processus : un fichier de /dev/shm
+// projeté en lecture/écriture. Le simulateur l'attache à une plage
+// d'adresses de Memory (pages de périphérique) ; un pilote de test dans
+// une autre JVM ouvre le même fichier et lit/écrit les mêmes octets, sans
+// passer par les ports console ni sérialiser.
+//
+// Ordre des accès : dans les zones déclarées ordonnées (registres de
+// périphérique, boîtes aux lettres), une lecture est une lecture acquire
+// et une écriture une écriture release, des deux côtés. Écrire un bloc de
+// données puis un registre ordonné publie le bloc : l'autre processus qui
+// lit le registre voit ensuite les données. Ailleurs, accès ordinaires.
+// Chaque processus doit déclarer les mêmes zones.
+//
+// Le contenu change sans prévenir le CPU : ne pas y exécuter de code avec
+// les moteurs BLOCK et TIERED (blocs décodés jamais invalidés). Le segment
+// est un périphérique volatil : une boucle qui attend une boîte aux lettres
+// n'est jamais sautée par la détection d'attente active. Chargeurs et
+// clearMemory() ne l'atteignent pas (le remplir par write(offset, ...)).
+// Ni instantané ni fork : le segment est commun.
+public final class SharedSegment implements Memory.Device, Closeable {
+
+    public static final Path SHM = Paths.get("/dev/shm");
+
+    // Accès atomiques par mot de 32 bits aligné (pas d'accès atomique
+    // octet sur un ByteBuffer)
+    private static final VarHandle WORD =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final boolean LITTLE = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final boolean[] ordered;    // par bloc de 256 octets du segment
+
+    private Memory memory;
+    private int base = -1;              // adresse d'attache
+
+    // Ouvre (ou crée) /dev/shm/name
+    public static SharedSegment open(String name, int size) throws IOException {
+        if (name.isEmpty() || name.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Nom de segment invalide : " + name);
+        }
+        return new SharedSegment(SHM.resolve(name), size);
+    }
+
+    // size : arrondi au multiple de 256 supérieur ; un fichier plus court
+    // est agrandi (à zéro), jamais tronqué
+    public SharedSegment(Path file, int size) throws IOException {
+        if (size <= 0 || size > 65536) {
+            throw new IllegalArgumentException("Taille de segment invalide : " + size);
+        }
+        this.file = file;
+        this.size = (size + 255) & ~255;
+        this.ordered = new boolean[this.size >> 8];
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        try {
+            if (channel.size() < this.size) {
+                channel.write(ByteBuffer.wrap(new byte[1]), this.size - 1);
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getFile() { return file; }
+    public int getSize() { return size; }
+
+    // Déclare une zone ordonnée (décalages dans le segment, par blocs de
+    // 256 octets)
+    public void setOrdered(int offset, int length) {
+        checkRange(offset, length);
+        for (int b = offset >> 8; b <= (offset + length - 1) >> 8; b++) {
+            ordered[b] = true;
+        }
+    }
+
+    public boolean isOrdered(int offset) {
+        checkRange(offset, 1);
+        return ordered[offset >> 8];
+    }
+
+    private void checkRange(int offset, int length) {
+        if (offset < 0 || length <= 0 || offset + length > size) {
+            throw new IllegalArgumentException(
+                    String.format("Plage hors du segment : %04X+%d (taille %d)", offset, length, size));
+        }
+    }
+
+    // Projette le segment à partir d'une adresse alignée sur une page ; les
+    // pages déjà mappées (console comprise) sont remplacées
+    public void attach(Memory memory, int address) {
+        if ((address & 0xFF) != 0 || address < 0 || address > 0xFFFF) {
+            throw new IllegalArgumentException(
+                    String.format("Adresse de segment non alignée sur une page : %04X", address));
+        }
+        if (this.memory != null) {
+            throw new IllegalStateException("Segment déjà attaché : " + file);
+        }
+        this.memory = memory;
+        this.base = address;
+        int end = Math.min(65536, address + size);
+        for (int page = address >> 8; page <= (end - 1) >> 8; page++) {
+            memory.mapDevice(page, this);
+        }
+    }
+
+    // ACCÈS PAR DÉCALAGE (pilote de test, autre processus)
+
+    public int get(int offset) {
+        checkRange(offset, 1);
+        return ordered[offset >> 8] ? getAcquire(offset) : buffer.get(offset) & 0xFF;
+    }
+
+    public void put(int offset, int value) {
+        checkRange(offset, 1);
+        if (ordered[offset >> 8]) putRelease(offset, value);
+        else buffer.put(offset, (byte) value);
+    }
+
+    // Copie en bloc, sans ordre : à publier ensuite par un registre ordonné
+    public void read(int offset, byte[] dest, int from, int length) {
+        checkRange(offset, length);
+        buffer.get(offset, dest, from, length);
+    }
+
+    public void write(int offset, byte[] src, int from, int length) {
+        checkRange(offset, length);
+        buffer.put(offset, src, from, length);
+    }
+
+    private static int shift(int offset) {
+        int n = offset & 3;
+        return (LITTLE ? n : 3 - n) << 3;
+    }
+
+    private int getAcquire(int offset) {
+        int word = (int) WORD.getAcquire(buffer, offset & ~3);
+        return (word >>> shift(offset)) & 0xFF;
+    }
+
+    // Les trois autres octets du mot peuvent être écrits en même temps par
+    // l'autre processus : remplacement par compareAndSet
+    private void putRelease(int offset, int value) {
+        int index = offset & ~3;
+        int s = shift(offset);
+        int old;
+        int updated;
+        do {
+            old = (int) WORD.getVolatile(buffer, index);
+            updated = (old & ~(0xFF << s)) | ((value & 0xFF) << s);
+        } while (!WORD.compareAndSet(buffer, index, old, updated));
+    }
+
+    // PÉRIPHÉRIQUE (accès du CPU simulé)
+
+    private int offset(int addr) {
+        return (addr & 0xFFFF) - base;
+    }
+
+    @Override
+    public int read(int addr) {
+        return peek(addr);
+    }
+
+    @Override
+    public void write(int addr, int value) {
+        int off = offset(addr);
+        if (ordered[off >> 8]) putRelease(off, value);
+        else buffer.put(off, (byte) value);
+    }
+
+    @Override
+    public int peek(int addr) {
+        int off = offset(addr);
+        return ordered[off >> 8] ? getAcquire(off) : buffer.get(off) & 0xFF;
+    }
+
+    // Chargeurs et clearMemory() : segment inchangé, l'effacement d'un job
+    // ne doit pas remettre à zéro les données de l'autre processus
+    @Override
+    public void poke(int addr, int value) {
+    }
+
+    // Écrit par l'autre processus
+    @Override
+    public boolean isVolatile() {
+        return true;
+    }
+
+    // Le fichier reste dans /dev/shm pour les autres processus
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,219 @@
+package peripherals;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+
+import cpu.CPU6809;
+import cpu.EventScheduler;
+
+// ACIA 6850 : liaison série asynchrone. Registres :
+//   0 : lecture état / écriture contrôle
+//   1 : lecture donnée reçue / écriture donnée à émettre
+// Un caractère dure (bits du format) × diviseur × cyclesPerClock cycles
+// CPU : l'émission et chaque réception sont des événements de
+// l'échéancier. Un caractère reçu alors que le précédent n'a pas été lu
+// est perdu (débordement). Un seul tampon d'émission (pas de registre à
+// décalage séparé). DCD et CTS toujours actifs.
+public final class Acia6850 implements Peripheral {
+
+    public interface TransmitListener {
+        void transmitted(int value);
+    }
+
+    // état
+    public static final int RDRF = 0x01;
+    public static final int TDRE = 0x02;
+    public static final int OVRN = 0x20;
+    public static final int IRQ = 0x80;
+
+    // bits par caractère (départ + données + parité + arrêt) selon CR4-CR2
+    private static final int[] CHAR_BITS = {11, 11, 10, 10, 11, 10, 11, 11};
+
+    private final int cyclesPerClock;
+    private final ArrayDeque<Integer> input = new ArrayDeque<>();
+    private final EventScheduler.Event sent = this::sent;
+    private final EventScheduler.Event received = this::received;
+
+    private CPU6809 cpu;
+    private IoBus.Line irq;
+    private TransmitListener transmitListener;
+
+    private int control = 0x03;     // remise à zéro maître au démarrage
+    private int status = TDRE;
+    private int rdr;
+    private int tdr;
+
+    // cyclesPerClock : cycles CPU par période de l'horloge d'émission/réception
+    public Acia6850(int cyclesPerClock) {
+        if (cyclesPerClock <= 0) {
+            throw new IllegalArgumentException("Horloge ACIA invalide : " + cyclesPerClock);
+        }
+        this.cyclesPerClock = cyclesPerClock;
+    }
+
+    @Override
+    public int getSize() {
+        return 2;
+    }
+
+    @Override
+    public void connect(CPU6809 cpu, IoBus.Line irq) {
+        this.cpu = cpu;
+        this.irq = irq;
+    }
+
+    @Override
+    public void reset() {
+        writeControl(0x03);
+    }
+
+    public void setTransmitListener(TransmitListener l) {
+        this.transmitListener = l;
+    }
+
+    // Caractère arrivant sur la ligne : reçu après un temps caractère,
+    // à la suite des précédents. Depuis le thread du CPU ou CPU arrêté
+    public void receive(int value) {
+        input.add(value & 0xFF);
+        scheduleReception();
+    }
+
+    public int getPendingInput() {
+        return input.size();
+    }
+
+    // Cycles CPU par caractère, format et diviseur courants
+    public long getCharCycles() {
+        int divider;
+        switch (control & 0x03) {
+            case 0: divider = 1; break;
+            case 1: divider = 16; break;
+            default: divider = 64; break;
+        }
+        return (long) CHAR_BITS[(control >> 2) & 0x07] * divider * cyclesPerClock;
+    }
+
+    private boolean inReset() {
+        return (control & 0x03) == 0x03;
+    }
+
+    private void scheduleReception() {
+        if (cpu == null || inReset() || input.isEmpty()) return;
+        EventScheduler events = cpu.getScheduler();
+        if (!events.isScheduled(received)) events.schedule(cpu.getCycles() + getCharCycles(), received);
+    }
+
+    private void received(long cycle) {
+        if (inReset() || input.isEmpty()) return;
+        int value = input.poll();
+        if ((status & RDRF) != 0) {
+            status |= OVRN;
+        } else {
+            rdr = value;
+            status |= RDRF;
+        }
+        updateIrq();
+        if (!input.isEmpty()) cpu.getScheduler().schedule(cycle + getCharCycles(), received);
+    }
+
+    private void sent(long cycle) {
+        status |= TDRE;
+        updateIrq();
+        if (transmitListener != null) transmitListener.transmitted(tdr);
+    }
+
+    private void writeControl(int value) {
+        boolean wasReset = inReset();
+        control = value & 0xFF;
+        if (inReset()) {
+            status = TDRE;
+            if (cpu != null) {
+                cpu.getScheduler().cancel(sent);
+                cpu.getScheduler().cancel(received);
+            }
+        } else if (wasReset) {
+            scheduleReception();
+        }
+        updateIrq();
+    }
+
+    // CR7 : IRQ en réception ; CR6-CR5 = 01 : IRQ en émission
+    private boolean irqActive() {
+        boolean rx = (control & 0x80) != 0 && (status & (RDRF | OVRN)) != 0;
+        boolean tx = (control & 0x60) == 0x20 && (status & TDRE) != 0;
+        return !inReset() && (rx || tx);
+    }
+
+    private void updateIrq() {
+        if (irq != null) irq.set(irqActive());
+    }
+
+    // REGISTRES
+
+    @Override
+    public int read(int addr) {
+        if ((addr & 1) == 0) return peek(addr);
+        status &= ~(RDRF | OVRN);
+        updateIrq();
+        return rdr;
+    }
+
+    @Override
+    public void write(int addr, int value) {
+        if ((addr & 1) == 0) {
+            writeControl(value);
+            return;
+        }
+        tdr = value & 0xFF;
+        if (inReset() || cpu == null) return;
+        status &= ~TDRE;
+        updateIrq();
+        EventScheduler events = cpu.getScheduler();
+        events.cancel(sent);
+        events.schedule(cpu.getCycles() + getCharCycles(), sent);
+    }
+
+    @Override
+    public int peek(int addr) {
+        if ((addr & 1) != 0) return rdr;
+        return irqActive() ? status | IRQ : status;
+    }
+
+    // Chargeurs et effacement : registres inchangés
+    @Override
+    public void poke(int addr, int value) {
+    }
+
+    // INSTANTANÉ : registres et caractères en attente sur la ligne ;
+    // émission et réception en cours suivent l'échéancier du CPU
+
+    private static final class State {
+        final int control, status, rdr, tdr;
+        final Integer[] input;
+
+        State(int control, int status, int rdr, int tdr, Integer[] input) {
+            this.control = control;
+            this.status = status;
+            this.rdr = rdr;
+            this.tdr = tdr;
+            this.input = input;
+        }
+    }
+
+    @Override
+    public Object saveState() {
+        return new State(control, status, rdr, tdr, input.toArray(new Integer[0]));
+    }
+
+    @Override
+    public void restoreState(Object state) {
+        State s = (State) state;
+        control = s.control;
+        status = s.status;
+        rdr = s.rdr;
+        tdr = s.tdr;
+        input.clear();
+        Collections.addAll(input, s.input);
+        if (irq != null) irq.restore(irqActive());
+    }
+}
@@ -0,0 +1,97 @@
+package peripherals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cpu.CPU6809;
+import memory.Memory;
+
+// Câblage des périphériques d'une machine : mappage des registres dans
+// Memory (seules les pages concernées passent par un périphérique) et
+// attribution d'une source d'interruption IRQ ou FIRQ à chacun.
+public final class IoBus {
+
+    public enum Target { IRQ, FIRQ, NONE }
+
+    // Sortie d'interruption d'un périphérique (source propre sur la ligne
+    // du CPU, plusieurs sources actives = OU câblé)
+    public final class Line {
+        private final int source;
+        private final Target target;
+        private boolean active;
+
+        private Line(int source, Target target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        public void set(boolean value) {
+            if (value == active) return;
+            active = value;
+            if (target == Target.IRQ) cpu.setIrq(source, value);
+            else if (target == Target.FIRQ) cpu.setFirq(source, value);
+        }
+
+        // Instantané restauré : niveau imposé au CPU, même inchangé
+        void restore(boolean value) {
+            active = value;
+            if (target == Target.IRQ) cpu.setIrq(source, value);
+            else if (target == Target.FIRQ) cpu.setFirq(source, value);
+        }
+
+        public boolean isActive() { return active; }
+        public Target getTarget() { return target; }
+    }
+
+    private final CPU6809 cpu;
+    private final Memory memory;
+    private final List<Peripheral> peripherals = new ArrayList<>();
+    private final List<Line> lines = new ArrayList<>();
+    private int nextSource = 1;
+
+    public IoBus(CPU6809 cpu, Memory memory) {
+        this.cpu = cpu;
+        this.memory = memory;
+        cpu.addResetHook(this::cpuReset);
+    }
+
+    public void attach(int address, Peripheral peripheral) {
+        attach(address, peripheral, Target.IRQ);
+    }
+
+    public void attach(int address, Peripheral peripheral, Target target) {
+        int size = peripheral.getSize();
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Taille de registres invalide : " + size);
+        }
+        if (peripherals.contains(peripheral)) {
+            throw new IllegalStateException("Périphérique déjà branché : " + peripheral);
+        }
+        if (nextSource == 0) {
+            throw new IllegalStateException("Plus de source d'interruption libre");
+        }
+        memory.mapIo(address, size, peripheral);
+        Line line = new Line(nextSource, target);
+        lines.add(line);
+        peripheral.connect(cpu, line);
+        nextSource <<= 1;
+        peripherals.add(peripheral);
+    }
+
+    public List<Peripheral> getPeripherals() {
+        return Collections.unmodifiableList(peripherals);
+    }
+
+    // RESET de la carte : tous les périphériques
+    public void reset() {
+        for (Peripheral p : peripherals) p.reset();
+    }
+
+    // RESET du CPU : il a relâché toutes les lignes et vidé l'échéancier,
+    // les Line suivent avant que les périphériques ne les repositionnent
+    private void cpuReset() {
+        for (Line line : lines) line.active = false;
+        reset();
+    }
+}
@@ -0,0 +1,21 @@
+package peripherals;
+
+import cpu.CPU6809;
+import memory.Memory;
+
+// Circuit d'E/S branché par IoBus : registres mappés sur une plage
+// d'adresses de Memory, ligne d'interruption vers le CPU, temporisations
+// programmées dans l'échéancier du CPU (jamais interrogées à chaque
+// instruction). L'état suit les instantanés de Memory (Snapshotable), les
+// événements et la ligne d'interruption ceux du CPU. Pas de fork.
+public interface Peripheral extends Memory.Device, Memory.Snapshotable {
+
+    // Nombre de registres (puissance de 2) : registre = addr & (size - 1)
+    int getSize();
+
+    // Appelé une fois par IoBus.attach()
+    void connect(CPU6809 cpu, IoBus.Line irq);
+
+    // Broche RESET
+    void reset();
+}
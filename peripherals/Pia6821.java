@@ -0,0 +1,196 @@
+package peripherals;
+
+import cpu.CPU6809;
+
+// PIA 6821 : deux ports parallèles de 8 bits (A, B) avec registre de
+// direction, et deux lignes de contrôle par port (C1 en entrée, C2 en
+// entrée ou sortie). Registres :
+//   0 : ORA ou DDRA (CRA bit 2)   1 : CRA
+//   2 : ORB ou DDRB (CRB bit 2)   3 : CRB
+// Les fronts sur C1/C2 lèvent les bits 7/6 du registre de contrôle,
+// effacés par la lecture du registre de données. Sortie C2 : mode manuel
+// seulement (CRx bits 5-4 = 11, niveau = bit 3).
+public final class Pia6821 implements Peripheral {
+
+    // Niveaux des broches du port (entrées comprises) après une écriture
+    public interface PortListener {
+        void output(int value);
+    }
+
+    public interface ControlListener {
+        void output(boolean level);
+    }
+
+    private final class Port {
+        int or;
+        int ddr;
+        int cr;
+        int input = 0xFF;           // niveaux imposés de l'extérieur
+        boolean c1;
+        boolean c2;
+        PortListener portListener;
+        ControlListener c2Listener;
+
+        int pins() {
+            return (or & ddr) | (input & ~ddr & 0xFF);
+        }
+
+        int read(boolean peek) {
+            if ((cr & 0x04) == 0) return ddr;
+            if (!peek) {
+                cr &= 0x3F;
+                updateIrq();
+            }
+            return pins();
+        }
+
+        void write(int value) {
+            if ((cr & 0x04) != 0) or = value;
+            else ddr = value;
+            if (portListener != null) portListener.output(pins());
+        }
+
+        void writeControl(int value) {
+            cr = (cr & 0xC0) | (value & 0x3F);
+            if ((cr & 0x30) == 0x30) {
+                c2 = (cr & 0x08) != 0;
+                if (c2Listener != null) c2Listener.output(c2);
+            }
+            updateIrq();
+        }
+
+        // bit 1 (C1) ou bit 4 (C2) : 1 = front montant
+        void setC1(boolean level) {
+            if (level != c1 && level == ((cr & 0x02) != 0)) cr |= 0x80;
+            c1 = level;
+            updateIrq();
+        }
+
+        void setC2(boolean level) {
+            if ((cr & 0x20) != 0) return;       // C2 en sortie
+            if (level != c2 && level == ((cr & 0x10) != 0)) cr |= 0x40;
+            c2 = level;
+            updateIrq();
+        }
+
+        boolean irq() {
+            return ((cr & 0x80) != 0 && (cr & 0x01) != 0)
+                    || ((cr & 0x40) != 0 && (cr & 0x08) != 0 && (cr & 0x20) == 0);
+        }
+
+        void reset() {
+            or = 0;
+            ddr = 0;
+            cr = 0;
+            if (portListener != null) portListener.output(pins());
+        }
+    }
+
+    private final Port a = new Port();
+    private final Port b = new Port();
+    private IoBus.Line irq;
+
+    @Override
+    public int getSize() {
+        return 4;
+    }
+
+    @Override
+    public void connect(CPU6809 cpu, IoBus.Line irq) {
+        this.irq = irq;
+    }
+
+    @Override
+    public void reset() {
+        a.reset();
+        b.reset();
+        updateIrq();
+    }
+
+    // IRQA et IRQB câblées ensemble
+    private void updateIrq() {
+        if (irq != null) irq.set(a.irq() || b.irq());
+    }
+
+    // CÔTÉ EXTÉRIEUR
+
+    public void setInputA(int value) { a.input = value & 0xFF; }
+    public void setInputB(int value) { b.input = value & 0xFF; }
+    public int getPinsA() { return a.pins(); }
+    public int getPinsB() { return b.pins(); }
+
+    public void setCA1(boolean level) { a.setC1(level); }
+    public void setCA2(boolean level) { a.setC2(level); }
+    public void setCB1(boolean level) { b.setC1(level); }
+    public void setCB2(boolean level) { b.setC2(level); }
+
+    public void setPortAListener(PortListener l) { a.portListener = l; }
+    public void setPortBListener(PortListener l) { b.portListener = l; }
+    public void setCA2Listener(ControlListener l) { a.c2Listener = l; }
+    public void setCB2Listener(ControlListener l) { b.c2Listener = l; }
+
+    // REGISTRES
+
+    @Override
+    public int read(int addr) {
+        return read(addr, false);
+    }
+
+    private int read(int addr, boolean peek) {
+        switch (addr & 3) {
+            case 0: return a.read(peek);
+            case 1: return a.cr;
+            case 2: return b.read(peek);
+            default: return b.cr;
+        }
+    }
+
+    @Override
+    public void write(int addr, int value) {
+        value &= 0xFF;
+        switch (addr & 3) {
+            case 0: a.write(value); break;
+            case 1: a.writeControl(value); break;
+            case 2: b.write(value); break;
+            default: b.writeControl(value); break;
+        }
+    }
+
+    @Override
+    public int peek(int addr) {
+        return read(addr, true);
+    }
+
+    // Chargeurs et effacement : registres inchangés
+    @Override
+    public void poke(int addr, int value) {
+    }
+
+    // INSTANTANÉ (niveaux extérieurs compris, listeners non prévenus)
+
+    private static final class State {
+        final int[] regs;           // or, ddr, cr, input de A puis de B
+        final boolean[] lines;      // c1, c2 de A puis de B
+
+        State(int[] regs, boolean[] lines) {
+            this.regs = regs;
+            this.lines = lines;
+        }
+    }
+
+    @Override
+    public Object saveState() {
+        return new State(new int[] {a.or, a.ddr, a.cr, a.input, b.or, b.ddr, b.cr, b.input},
+                new boolean[] {a.c1, a.c2, b.c1, b.c2});
+    }
+
+    @Override
+    public void restoreState(Object state) {
+        State s = (State) state;
+        a.or = s.regs[0]; a.ddr = s.regs[1]; a.cr = s.regs[2]; a.input = s.regs[3];
+        b.or = s.regs[4]; b.ddr = s.regs[5]; b.cr = s.regs[6]; b.input = s.regs[7];
+        a.c1 = s.lines[0]; a.c2 = s.lines[1];
+        b.c1 = s.lines[2]; b.c2 = s.lines[3];
+        if (irq != null) irq.restore(a.irq() || b.irq());
+    }
+}
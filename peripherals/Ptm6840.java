@@ -0,0 +1,295 @@
+package peripherals;
+
+import cpu.CPU6809;
+import cpu.EventScheduler;
+
+// PTM 6840 : trois compteurs 16 bits décrémentés par l'horloge E (cycle
+// CPU ; ÷8 pour le compteur 3 si CR3 bit 0). Registres :
+//   0 : écriture CR1 (CR2 bit 0 = 1) ou CR3     1 : écriture CR2 / lecture état
+//   2, 4, 6 : compteur n (octet fort, lit l'octet faible dans un tampon) /
+//             tampon de l'octet fort du latch
+//   3, 5, 7 : tampon de l'octet faible / latch n (initialise le compteur
+//             si CRn bit 4 = 0)
+// Le compteur n'est pas décrémenté cycle par cycle : sa valeur se calcule
+// à la lecture et chaque fin de comptage est un événement de l'échéancier.
+// Modes continu et monostable (CRn bit 5), 16 bits ou double 8 bits
+// (bit 2). Sans broches G et horloges externes : les modes de comparaison
+// (bit 3) et l'horloge externe (bit 1 = 0) arrêtent le compteur, les
+// sorties O1-O3 ne sont pas modélisées.
+public final class Ptm6840 implements Peripheral {
+
+    private final class Timer implements EventScheduler.Event {
+        final int index;
+        final int flagBit;
+        int control;
+        int latch = 0xFFFF;
+        boolean started;            // initialisé depuis le dernier RESET
+        boolean oneShotDone;
+        long start;                 // cycle du dernier chargement
+        int initial;                // valeur chargée à start
+        int held = 0xFFFF;          // valeur du compteur arrêté
+
+        Timer(int index) {
+            this.index = index;
+            this.flagBit = 1 << index;
+        }
+
+        int prescale() {
+            return index == 2 && (control & 0x01) != 0 ? 8 : 1;
+        }
+
+        boolean dual() {
+            return (control & 0x04) != 0;
+        }
+
+        boolean running() {
+            return started && !internalReset() && (control & 0x0A) == 0x02;
+        }
+
+        // Périodes d'horloge de initial jusqu'à la fin de comptage
+        long period() {
+            if (!dual()) return initial + 1L;
+            return ((initial >> 8) + 1L) * ((initial & 0xFF) + 1L);
+        }
+
+        long[] save() {
+            return new long[] {control, latch, started ? 1 : 0, oneShotDone ? 1 : 0, start, initial, held};
+        }
+
+        void restore(long[] s) {
+            control = (int) s[0];
+            latch = (int) s[1];
+            started = s[2] != 0;
+            oneShotDone = s[3] != 0;
+            start = s[4];
+            initial = (int) s[5];
+            held = (int) s[6];
+        }
+
+        int counter(long now) {
+            if (!running()) return held;
+            long elapsed = ((now - start) / prescale()) % period();
+            if (!dual()) return (int) (initial - elapsed);
+            int lsb = initial & 0xFF;
+            int msb = (initial >> 8) - (int) (elapsed / (lsb + 1));
+            return (msb << 8) | (lsb - (int) (elapsed % (lsb + 1)));
+        }
+
+        // Chargement du latch dans le compteur
+        void initialize(long now) {
+            started = true;
+            oneShotDone = false;
+            status &= ~flagBit;
+            load(now, latch);
+            updateIrq();
+        }
+
+        void load(long now, int value) {
+            start = now;
+            initial = value;
+            held = value;
+            schedule();
+        }
+
+        void schedule() {
+            EventScheduler events = cpu.getScheduler();
+            events.cancel(this);
+            if (running() && !oneShotDone) events.schedule(start + period() * prescale(), this);
+        }
+
+        void setControl(int value, long now) {
+            int current = counter(now);
+            control = value;
+            load(now, current);
+        }
+
+        // Fin de comptage : rechargement depuis le latch
+        @Override
+        public void fire(long cycle) {
+            status |= flagBit;
+            updateIrq();
+            oneShotDone = (control & 0x20) != 0;
+            load(cycle, latch);
+        }
+    }
+
+    private final Timer[] timers = {new Timer(0), new Timer(1), new Timer(2)};
+    private CPU6809 cpu;
+    private IoBus.Line irq;
+
+    private int status;
+    private int statusRead;                     // drapeaux vus par une lecture d'état
+    private int msbBuffer;
+    private int lsbBuffer;
+
+    @Override
+    public int getSize() {
+        return 8;
+    }
+
+    @Override
+    public void connect(CPU6809 cpu, IoBus.Line irq) {
+        this.cpu = cpu;
+        this.irq = irq;
+        reset();
+    }
+
+    // Latches à FFFF, compteurs maintenus par le RESET interne (CR1 bit 0)
+    @Override
+    public void reset() {
+        status = 0;
+        statusRead = 0;
+        for (Timer t : timers) {
+            t.latch = 0xFFFF;
+            t.started = false;
+            t.oneShotDone = false;
+            t.control = 0;
+            t.held = 0xFFFF;
+            if (cpu != null) cpu.getScheduler().cancel(t);
+        }
+        timers[0].control = 0x01;
+        updateIrq();
+    }
+
+    private boolean internalReset() {
+        return (timers[0].control & 0x01) != 0;
+    }
+
+    private long now() {
+        return cpu.getCycles();
+    }
+
+    private boolean irqActive() {
+        for (Timer t : timers) {
+            if ((status & t.flagBit) != 0 && (t.control & 0x40) != 0) return true;
+        }
+        return false;
+    }
+
+    private void updateIrq() {
+        if (irq != null) irq.set(irqActive());
+    }
+
+    // CR1 bit 0 : RESET interne. Levé, les compteurs sont rechargés et
+    // maintenus ; retombé, ils repartent des latches
+    private void writeCr1(int value) {
+        boolean wasReset = internalReset();
+        long now = now();
+        timers[0].setControl(value, now);
+        if (internalReset()) {
+            status = 0;
+            for (Timer t : timers) {
+                t.held = t.latch;
+                t.schedule();
+            }
+            updateIrq();
+        } else if (wasReset) {
+            for (Timer t : timers) t.initialize(now);
+        }
+    }
+
+    public int getCounter(int timer) {
+        return timers[timer].counter(now());
+    }
+
+    public int getLatch(int timer) {
+        return timers[timer].latch;
+    }
+
+    // REGISTRES
+
+    @Override
+    public int read(int addr) {
+        int r = addr & 7;
+        if (r == 1) {
+            statusRead = status;
+            return peek(addr);
+        }
+        if (r == 2 || r == 4 || r == 6) {
+            Timer t = timers[(r >> 1) - 1];
+            int value = t.counter(now());
+            lsbBuffer = value & 0xFF;
+            // état lu puis compteur lu : drapeau effacé
+            if ((statusRead & t.flagBit) != 0) {
+                status &= ~t.flagBit;
+                statusRead &= ~t.flagBit;
+                updateIrq();
+            }
+            return value >> 8;
+        }
+        return peek(addr);
+    }
+
+    @Override
+    public void write(int addr, int value) {
+        value &= 0xFF;
+        int r = addr & 7;
+        switch (r) {
+            case 0:
+                if ((timers[1].control & 0x01) != 0) writeCr1(value);
+                else timers[2].setControl(value, now());
+                break;
+            case 1:
+                timers[1].setControl(value, now());
+                break;
+            case 2: case 4: case 6:
+                msbBuffer = value;
+                break;
+            default: {
+                Timer t = timers[(r >> 1) - 1];
+                t.latch = (msbBuffer << 8) | value;
+                if (internalReset()) t.held = t.latch;
+                else if ((t.control & 0x10) == 0) t.initialize(now());
+                break;
+            }
+        }
+    }
+
+    @Override
+    public int peek(int addr) {
+        int r = addr & 7;
+        if (r == 1) return irqActive() ? status | 0x80 : status;
+        if (r == 3 || r == 5 || r == 7) return lsbBuffer;
+        if (r == 0) return 0;
+        return timers[(r >> 1) - 1].counter(now()) >> 8;
+    }
+
+    // Chargeurs et effacement : registres inchangés
+    @Override
+    public void poke(int addr, int value) {
+    }
+
+    // INSTANTANÉ : registres et comptage en cours ; les fins de comptage
+    // programmées suivent l'échéancier du CPU
+
+    private static final class State {
+        final long[][] timers;
+        final int status, statusRead, msbBuffer, lsbBuffer;
+
+        State(long[][] timers, int status, int statusRead, int msbBuffer, int lsbBuffer) {
+            this.timers = timers;
+            this.status = status;
+            this.statusRead = statusRead;
+            this.msbBuffer = msbBuffer;
+            this.lsbBuffer = lsbBuffer;
+        }
+    }
+
+    @Override
+    public Object saveState() {
+        long[][] t = new long[3][];
+        for (int i = 0; i < 3; i++) t[i] = timers[i].save();
+        return new State(t, status, statusRead, msbBuffer, lsbBuffer);
+    }
+
+    @Override
+    public void restoreState(Object state) {
+        State s = (State) state;
+        for (int i = 0; i < 3; i++) timers[i].restore(s.timers[i]);
+        status = s.status;
+        statusRead = s.statusRead;
+        msbBuffer = s.msbBuffer;
+        lsbBuffer = s.lsbBuffer;
+        if (irq != null) irq.restore(irqActive());
+    }
+}